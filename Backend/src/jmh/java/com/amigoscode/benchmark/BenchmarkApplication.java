@@ -0,0 +1,74 @@
+package com.amigoscode.benchmark;
+
+import com.amigoscode.SpringBootExampleApplication;
+import com.amigoscode.customer.Customer;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+final class BenchmarkApplication {
+
+    static final String DATASOURCE_URL = System.getProperty(
+            "benchmark.datasource.url",
+            "jdbc:postgresql://localhost:5432/customer_benchmark"
+    );
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        return start(WebApplicationType.NONE, properties);
+    }
+
+    static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String... properties) {
+        return builder(webApplicationType, properties).run();
+    }
+
+    // the API with CustomerService on another CustomerDAO bean than jpa-cached, e.g. the plain "jdbc" one,
+    // so a load test measures the request handling and the database rather than cache hits
+    static ConfigurableApplicationContext startServer(String customerDAO, String... properties) {
+        return builder(WebApplicationType.SERVLET, properties)
+                .initializers(context -> context.addBeanFactoryPostProcessor(beanFactory -> {
+                    BeanDefinitionRegistry registry = (BeanDefinitionRegistry) beanFactory;
+                    registry.removeBeanDefinition("jpa-cached");
+                    registry.registerAlias(customerDAO, "jpa-cached");
+                }))
+                .run();
+    }
+
+    private static SpringApplicationBuilder builder(WebApplicationType webApplicationType, String... properties) {
+        String[] defaults = {
+                "spring.datasource.url=" + DATASOURCE_URL,
+                "spring.jpa.show-sql=false",
+                "spring.jpa.properties.hibernate.format_sql=false",
+                "logging.level.root=WARN"
+        };
+        return new SpringApplicationBuilder(SpringBootExampleApplication.class)
+                .web(webApplicationType)
+                .properties(Stream.concat(Arrays.stream(defaults), Arrays.stream(properties)).toArray(String[]::new));
+    }
+
+    static void truncateCustomers(ConfigurableApplicationContext context) {
+        // the change log would otherwise keep every row each run inserted
+        context.getBean(JdbcTemplate.class).execute("TRUNCATE customer, customer_change");
+    }
+
+    static List<Customer> customers(int count) {
+        List<Customer> customers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            customers.add(new Customer(
+                    "customer " + i,
+                    "customer-" + i + "@benchmark.com",
+                    18 + i % 80
+            ));
+        }
+        return customers;
+    }
+}
@@ -0,0 +1,83 @@
+package com.amigoscode.benchmark;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerDAO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Throughput of CONCURRENCY request threads sharing a pool sized connectionsPerCore * cores + 1, the model
+// ConnectionPoolProperties applies in the prod profile; cores are this machine's, so run it next to the
+// database. Nine reads to one write, like the API. Each trial prints the mean and max wait for a connection.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(ConnectionPoolBenchmark.CONCURRENCY)
+@State(Scope.Benchmark)
+public class ConnectionPoolBenchmark {
+
+    static final int CONCURRENCY = 64;
+    static final int TABLE_SIZE = 10_000;
+
+    @Param({"1", "2", "4", "8"})
+    private int connectionsPerCore;
+
+    private ConfigurableApplicationContext context;
+    private CustomerDAO customerDAO;
+    private int[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(
+                "customer.datasource.pool.enabled=true",
+                "customer.datasource.pool.connections-per-core=" + connectionsPerCore
+        );
+        BenchmarkApplication.truncateCustomers(context);
+        customerDAO = context.getBean("jdbc", CustomerDAO.class);
+        customerDAO.insertCustomers(BenchmarkApplication.customers(TABLE_SIZE));
+        ids = customerDAO.selectAllCustomers().stream().mapToInt(Customer::getId).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Timer acquire = context.getBean(MeterRegistry.class).get("hikaricp.connections.acquire").timer();
+        System.out.printf("connection wait with %d per core: mean %.3f ms, max %.3f ms%n",
+                connectionsPerCore, acquire.mean(TimeUnit.MILLISECONDS), acquire.max(TimeUnit.MILLISECONDS));
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Customer> readMostly() {
+        Customer customer = customerDAO.selectCustomerById(randomId()).orElseThrow();
+        if (ThreadLocalRandom.current().nextInt(10) == 0) {
+            customer.setAge(ThreadLocalRandom.current().nextInt(18, 99));
+            customer.setVersion(null);
+            customerDAO.updateCustomer(customer);
+        }
+        return Optional.of(customer);
+    }
+
+    private int randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
@@ -0,0 +1,113 @@
+package com.amigoscode.benchmark;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerDAO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Throughput and SampleTime (p50/p99/p99.9) of the servlet stack under CONCURRENCY clients,
+// with tomcat on its platform thread pool and on virtual threads. CustomerService reads through the
+// plain jdbc DAO, behind the jpa-cached one nearly every request would be a cache hit.
+// Add -Djdk.tracePinnedThreads=short to the fork to print any pinned carrier threads.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(CustomerApiLoadBenchmark.CONCURRENCY)
+@State(Scope.Benchmark)
+public class CustomerApiLoadBenchmark {
+
+    static final int CONCURRENCY = 512;
+    static final int TABLE_SIZE = 10_000;
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUri;
+    private int[] ids;
+    private String[] afterTokens;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.startServer(
+                "jdbc",
+                "server.port=0",
+                "spring.threads.virtual.enabled=" + virtualThreads
+        );
+        BenchmarkApplication.truncateCustomers(context);
+        CustomerDAO customerDAO = context.getBean("jdbc", CustomerDAO.class);
+        if (context.getBean("jpa-cached") != customerDAO) {
+            throw new IllegalStateException("the API is not serving from the jdbc DAO");
+        }
+        customerDAO.insertCustomers(BenchmarkApplication.customers(TABLE_SIZE));
+        ids = customerDAO.selectAllCustomers().stream().mapToInt(Customer::getId).toArray();
+        // the nextCursor a page by id ending at that customer hands out
+        afterTokens = Arrays.stream(ids)
+                .mapToObj(id -> Base64.getUrlEncoder().withoutPadding()
+                        .encodeToString(("id:" + id).getBytes(StandardCharsets.UTF_8)))
+                .toArray(String[]::new);
+
+        baseUri = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/v1/customers";
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int getCustomer() throws IOException, InterruptedException {
+        return get(baseUri + "/" + randomId());
+    }
+
+    @Benchmark
+    public int getCustomersPage() throws IOException, InterruptedException {
+        return get(baseUri + "?limit=20&after=" + afterTokens[ThreadLocalRandom.current().nextInt(afterTokens.length)]);
+    }
+
+    private int get(String uri) throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(
+                HttpRequest.newBuilder(URI.create(uri)).GET().build(),
+                HttpResponse.BodyHandlers.discarding()
+        );
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET %s returned %s".formatted(uri, response.statusCode()));
+        }
+        return response.statusCode();
+    }
+
+    private int randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
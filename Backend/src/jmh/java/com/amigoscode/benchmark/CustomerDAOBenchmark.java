@@ -0,0 +1,97 @@
+package com.amigoscode.benchmark;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerDAO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerDAOBenchmark {
+
+    @Param({"list", "jdbc", "jpa"})
+    private String dao;
+
+    @Param({"1000", "10000", "100000"})
+    private int tableSize;
+
+    private ConfigurableApplicationContext context;
+    private CustomerDAO customerDAO;
+    private Customer[] seeded;
+    private final AtomicLong inserted = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        customerDAO = context.getBean(dao, CustomerDAO.class);
+
+        if (!dao.equals("list")) {
+            BenchmarkApplication.truncateCustomers(context);
+        }
+        customerDAO.insertCustomers(BenchmarkApplication.customers(tableSize));
+        seeded = customerDAO.selectAllCustomers().toArray(Customer[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Customer> selectCustomerById() {
+        return customerDAO.selectCustomerById(randomCustomer().getId());
+    }
+
+    @Benchmark
+    public List<Customer> selectAllCustomers() {
+        return customerDAO.selectAllCustomers();
+    }
+
+    @Benchmark
+    public boolean existsPersonWithEmail() {
+        return customerDAO.existsPersonWithEmail(randomCustomer().getEmail());
+    }
+
+    @Benchmark
+    public void insertCustomer() {
+        customerDAO.insertCustomer(new Customer(
+                "inserted",
+                "inserted-" + inserted.incrementAndGet() + "-" + System.nanoTime() + "@benchmark.com",
+                30
+        ));
+    }
+
+    @Benchmark
+    public void updateCustomer() {
+        // read then write like CustomerService, every DAO issues a single UPDATE checking the version
+        Customer customer = customerDAO.selectCustomerById(randomCustomer().getId()).orElseThrow();
+        customer.setAge(ThreadLocalRandom.current().nextInt(18, 99));
+        customerDAO.updateCustomer(customer);
+    }
+
+    private Customer randomCustomer() {
+        return seeded[ThreadLocalRandom.current().nextInt(seeded.length)];
+    }
+}
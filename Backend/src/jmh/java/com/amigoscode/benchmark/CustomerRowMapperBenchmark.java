@@ -0,0 +1,118 @@
+package com.amigoscode.benchmark;
+
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerField;
+import com.amigoscode.customer.CustomerRowMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+// Mapping cost alone over a whole table: customer-shaped rows are generated by the database and fetched
+// once into a scrollable result set held in memory, every invocation rewinds and maps all of them.
+// byLabel is CustomerRowMapper as it was, looking each column up by name on every row.
+// Run with -prof gc to see the allocation per row.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class CustomerRowMapperBenchmark {
+
+    private static final RowMapper<Customer> BY_LABEL = (rs, rowNum) -> new Customer(
+            rs.getInt("id"),
+            rs.getString("name"),
+            rs.getString("email"),
+            rs.getInt("age"),
+            rs.getInt("version")
+    );
+
+    private static final String ROWS_SQL = """
+            SELECT g AS id, 'customer ' || g AS name, 'customer-' || g || '@benchmark.com' AS email,
+                   18 + g %% 80 AS age, 0 AS version
+            FROM generate_series(1, %d) g
+            """;
+
+    @Param({"1000000"})
+    private int tableSize;
+
+    private ConfigurableApplicationContext context;
+    private Connection connection;
+    private ResultSet resultSet;
+    private final CustomerRowMapper customerRowMapper = new CustomerRowMapper();
+    // the generated columns start with id, name, email, age like a ?fields=name,email,age listing
+    private final RowMapper<Customer> projectionMapper = customerRowMapper.projection(EnumSet.of(
+            CustomerField.ID, CustomerField.NAME, CustomerField.EMAIL, CustomerField.AGE));
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        // no table to seed, the mapper only ever sees the result set
+        context = BenchmarkApplication.start();
+        connection = context.getBean(DataSource.class).getConnection();
+        Statement statement = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        resultSet = statement.executeQuery(ROWS_SQL.formatted(tableSize));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        resultSet.close();
+        connection.close();
+        context.close();
+    }
+
+    @Benchmark
+    public void byLabel(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        int rowNum = 0;
+        while (resultSet.next()) {
+            blackhole.consume(BY_LABEL.mapRow(resultSet, rowNum++));
+        }
+    }
+
+    @Benchmark
+    public void byIndex(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        int rowNum = 0;
+        while (resultSet.next()) {
+            blackhole.consume(customerRowMapper.mapRow(resultSet, rowNum++));
+        }
+    }
+
+    @Benchmark
+    public void projection(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        int rowNum = 0;
+        while (resultSet.next()) {
+            blackhole.consume(projectionMapper.mapRow(resultSet, rowNum++));
+        }
+    }
+
+    @Benchmark
+    public void customerRow(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        while (resultSet.next()) {
+            blackhole.consume(customerRowMapper.mapCustomerRow(resultSet));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.amigoscode.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Cost of one data-access log line on a request thread, with 8 threads contending like a busy pool.
+// systemOut is what CustomerJDBCDataAccessAndService did before, the others are the SLF4J paths
+// it uses now: disabled (the default level), and enabled behind the async appender or a plain one.
+// Run with -prof gc to see the allocation per call.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class DataAccessLoggingBenchmark {
+
+    // boxed up front so the disabled path shows only what logging itself allocates
+    private static final Integer[] CUSTOMER_IDS = ThreadLocalRandom.current()
+            .ints(1024, 1_000, 1_000_000)
+            .boxed()
+            .toArray(Integer[]::new);
+
+    private PrintStream originalOut;
+    private Logger disabled;
+    private Logger async;
+    private Logger sync;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // the bytes go nowhere, so what is left is formatting, locking and queueing
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        OutputStreamAppender<ILoggingEvent> sink = nullAppender(context);
+
+        AsyncAppender asyncAppender = new AsyncAppender();
+        asyncAppender.setContext(context);
+        asyncAppender.setQueueSize(8192);
+        asyncAppender.setNeverBlock(true);
+        asyncAppender.addAppender(sink);
+        asyncAppender.start();
+
+        disabled = logger(context, "benchmark.disabled", ch.qos.logback.classic.Level.INFO, sink);
+        async = logger(context, "benchmark.async", ch.qos.logback.classic.Level.DEBUG, asyncAppender);
+        sync = logger(context, "benchmark.sync", ch.qos.logback.classic.Level.DEBUG, nullAppender(context));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public void systemOut() {
+        int result = 1;
+        System.out.println("updateCustomer result = " + result + " id = " + customerId());
+    }
+
+    @Benchmark
+    public void slf4jDisabled() {
+        disabled.debug("updated customer {} ({} rows)", customerId(), 1);
+    }
+
+    @Benchmark
+    public void slf4jAsync() {
+        async.debug("updated customer {} ({} rows)", customerId(), 1);
+    }
+
+    @Benchmark
+    public void slf4jSync() {
+        sync.debug("updated customer {} ({} rows)", customerId(), 1);
+    }
+
+    private static Integer customerId() {
+        return CUSTOMER_IDS[ThreadLocalRandom.current().nextInt(CUSTOMER_IDS.length)];
+    }
+
+    private static OutputStreamAppender<ILoggingEvent> nullAppender(LoggerContext context) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{ISO8601} %-5level [%thread] %logger : %msg%n");
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+        return appender;
+    }
+
+    private static Logger logger(LoggerContext context, String name, ch.qos.logback.classic.Level level, Appender<ILoggingEvent> appender) {
+        Logger logger = context.getLogger(name);
+        logger.setLevel(level);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+        return logger;
+    }
+}
@@ -0,0 +1,146 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.datasource.ReadYourWrites;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.Set;
+
+public class CachingCustomerDAO implements CustomerDAO {
+
+    private final CustomerDAO delegate;
+    private final Cache<Integer, Customer> customersById;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CachingCustomerDAO(CustomerDAO delegate,
+                              String qualifier,
+                              CustomerCacheProperties properties,
+                              MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        // caffeine evicts with W-TinyLFU once maximumSize is reached
+        this.customersById = Caffeine.newBuilder()
+                .maximumSize(properties.maximumSize())
+                .expireAfterWrite(properties.expireAfterWrite())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, customersById, "customers", "dao", qualifier);
+    }
+
+    @Override
+    public List<Customer> selectAllCustomers() {
+        return delegate.selectAllCustomers();
+    }
+
+    @Override
+    public List<Customer> selectCustomersAfter(int afterId, int limit) {
+        return delegate.selectCustomersAfter(afterId, limit);
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(Integer id) {
+        Customer customer = customersById.getIfPresent(id);
+        if (customer == null) {
+            // load outside the cache's locks, blocking inside ConcurrentHashMap.compute pins virtual threads
+            long seen = invalidations.get();
+            // a lagging replica would put an old row in the cache until it expires, fill from the primary
+            customer = ReadYourWrites.onPrimary(() -> delegate.selectCustomerById(id)).orElse(null);
+            // misses are not cached, so a later insert can never be hidden
+            if (customer != null) {
+                Customer loaded = customer;
+                // a write invalidated while we were loading, what we read may already be stale
+                customersById.asMap().compute(id, (key, current) -> invalidations.get() == seen ? loaded : current);
+            }
+        }
+        // hand out copies, callers mutate what they get back
+        return Optional.ofNullable(customer).map(Customer::new);
+    }
+
+    @Override
+    public void insertCustomer(Customer customer) {
+        delegate.insertCustomer(customer);
+        if (customer.getId() != null) {
+            invalidate(customer.getId());
+        }
+    }
+
+    @Override
+    public void insertCustomers(List<Customer> customers) {
+        delegate.insertCustomers(customers);
+    }
+
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return delegate.selectExistingEmails(emails);
+    }
+
+    @Override
+    public List<Customer> selectCustomers(CustomerFilter filter, Set<CustomerField> fields, CustomerCursor after, int limit) {
+        return delegate.selectCustomers(filter, fields, after, limit);
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String query, int afterId, int limit) {
+        return delegate.searchCustomers(query, afterId, limit);
+    }
+
+    @Override
+    public boolean existsPersonWithEmail(String email) {
+        return delegate.existsPersonWithEmail(email);
+    }
+
+    @Override
+    public boolean deleteCustomer(Integer customerId) {
+        boolean deleted = delegate.deleteCustomer(customerId);
+        invalidate(customerId);
+        return deleted;
+    }
+
+    @Override
+    public boolean existsCustomerWithId(Integer id) {
+        return customersById.getIfPresent(id) != null || delegate.existsCustomerWithId(id);
+    }
+
+    @Override
+    public boolean updateCustomer(Customer update) {
+        try {
+            return delegate.updateCustomer(update);
+        } finally {
+            // a version conflict means our copy is stale too
+            invalidate(update.getId());
+        }
+    }
+
+    @Override
+    public long selectCollectionVersion() {
+        return delegate.selectCollectionVersion();
+    }
+
+    // another node wrote, see CustomerChangeListener
+    public void evict(Integer id) {
+        invalidate(id);
+    }
+
+    public void evictAll() {
+        // counted first, a load already in flight must not put back what it read
+        invalidations.incrementAndGet();
+        customersById.invalidateAll();
+    }
+
+    private void invalidate(Integer id) {
+        customersById.asMap().compute(id, (key, current) -> {
+            invalidations.incrementAndGet();
+            return null;
+        });
+    }
+
+    public CacheStats stats() {
+        return customersById.stats();
+    }
+}
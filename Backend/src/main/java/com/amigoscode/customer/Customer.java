@@ -1,11 +1,19 @@
 package com.amigoscode.customer;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigInteger;
 import java.util.Objects;
 
+// projected list responses leave unselected fields null, they are omitted rather than sent as null
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CustomerSecondLevelCacheConfig.CUSTOMER_REGION)
 @Table(
         name = "customer",
         uniqueConstraints = {
@@ -21,7 +29,7 @@ public class Customer {
     @SequenceGenerator(
             name = "customer_id_seq",
             sequenceName = "customer_id_seq",
-            allocationSize = 1
+            allocationSize = CustomerIdAllocator.ALLOCATION_SIZE
     )
     @GeneratedValue(
             strategy = GenerationType.SEQUENCE,
@@ -37,6 +45,15 @@ public class Customer {
     private String email;
     @Column(nullable = false)
     private Integer age;
+    // bumped on every update, clients see it as the ETag rather than in the body
+    @Version
+    @Column(nullable = false)
+    @JsonIgnore
+    private Integer version;
+    // generated by the database from email, only here so specifications can filter on it
+    @Column(name = "email_domain", insertable = false, updatable = false)
+    @JsonIgnore
+    private String emailDomain;
 
     public Customer() {
     }
@@ -48,6 +65,15 @@ public class Customer {
         this.age = age;
     }
 
+    public Customer(Integer id, String name, String email, Integer age, Integer version) {
+        this(id, name, email, age);
+        this.version = version;
+    }
+
+    public Customer(Customer customer) {
+        this(customer.id, customer.name, customer.email, customer.age, customer.version);
+    }
+
     public Customer(String name, String email, Integer age) {
         this.name = name;
         this.email = email;
@@ -86,6 +112,14 @@ public class Customer {
         this.age = age;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -106,6 +140,7 @@ public class Customer {
                 ", name='" + name + '\'' +
                 ", email='" + email + '\'' +
                 ", age=" + age +
+                ", version=" + version +
                 '}';
     }
 }
@@ -0,0 +1,51 @@
+package com.amigoscode.customer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties({CustomerCacheProperties.class, CustomerCacheInvalidationProperties.class})
+public class CustomerCacheConfig {
+
+    @Bean("jdbc-cached")
+    public CachingCustomerDAO cachedJdbcCustomerDAO(@Qualifier("jdbc") CustomerDAO customerDAO,
+                                                    CustomerCacheProperties properties,
+                                                    MeterRegistry meterRegistry) {
+        return new CachingCustomerDAO(customerDAO, "jdbc", properties, meterRegistry);
+    }
+
+    @Bean("jpa-cached")
+    public CachingCustomerDAO cachedJpaCustomerDAO(@Qualifier("jpa") CustomerDAO customerDAO,
+                                                   CustomerCacheProperties properties,
+                                                   MeterRegistry meterRegistry) {
+        return new CachingCustomerDAO(customerDAO, "jpa", properties, meterRegistry);
+    }
+
+    // connects to spring.datasource, the primary; a replica does not deliver NOTIFY
+    @Bean
+    @ConditionalOnProperty(prefix = "customer.cache.invalidation", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public CustomerChangeListener customerChangeListener(DataSourceProperties dataSourceProperties,
+                                                         List<CachingCustomerDAO> caches,
+                                                         EntityManagerFactory entityManagerFactory,
+                                                         CustomerCacheInvalidationProperties properties,
+                                                         ApplicationEventPublisher eventPublisher) {
+        return new CustomerChangeListener(
+                dataSourceProperties.initializeDataSourceBuilder().type(SimpleDriverDataSource.class).build(),
+                caches,
+                entityManagerFactory.unwrap(SessionFactory.class).getCache(),
+                properties,
+                eventPublisher
+        );
+    }
+}
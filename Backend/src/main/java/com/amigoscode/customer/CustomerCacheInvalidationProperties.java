@@ -0,0 +1,14 @@
+package com.amigoscode.customer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// pollTimeout bounds how long stopping the listener waits for its blocked read
+@ConfigurationProperties("customer.cache.invalidation")
+public record CustomerCacheInvalidationProperties(
+        @DefaultValue("500ms") Duration pollTimeout,
+        @DefaultValue("1s") Duration reconnectDelay
+) {
+}
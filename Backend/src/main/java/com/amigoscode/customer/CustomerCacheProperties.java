@@ -0,0 +1,13 @@
+package com.amigoscode.customer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties("customer.cache")
+public record CustomerCacheProperties(
+        @DefaultValue("10000") long maximumSize,
+        @DefaultValue("5m") Duration expireAfterWrite
+) {
+}
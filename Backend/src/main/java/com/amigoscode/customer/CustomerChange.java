@@ -0,0 +1,20 @@
+package com.amigoscode.customer;
+
+import java.time.Instant;
+
+// one row of customer_change; name, email, age and version are null for a delete
+public record CustomerChange(
+        long seq,
+        Integer customerId,
+        Operation operation,
+        String name,
+        String email,
+        Integer age,
+        Integer version,
+        Instant changedAt
+) {
+
+    public enum Operation {
+        INSERT, UPDATE, DELETE
+    }
+}
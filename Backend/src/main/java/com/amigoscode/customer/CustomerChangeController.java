@@ -0,0 +1,36 @@
+package com.amigoscode.customer;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+// consumers read changes/latest, then the snapshot from /customers, then follow changes from that cursor;
+// replaying a change already in the snapshot is harmless, every change carries the whole row
+@RestController
+@Profile("!reactive")
+@RequestMapping("api/v1")
+public class CustomerChangeController {
+
+    private final CustomerChangeFeed customerChangeFeed;
+
+    public CustomerChangeController(CustomerChangeFeed customerChangeFeed) {
+        this.customerChangeFeed = customerChangeFeed;
+    }
+
+    @GetMapping("/customers/changes")
+    public DeferredResult<CustomerChangePage> getChanges(
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "wait", required = false) Integer wait
+    ) {
+        return customerChangeFeed.getChanges(after, limit, wait);
+    }
+
+    @GetMapping("/customers/changes/latest")
+    public CustomerChangePage getLatest() {
+        return customerChangeFeed.getLatest();
+    }
+}
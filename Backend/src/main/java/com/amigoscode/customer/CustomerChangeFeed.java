@@ -0,0 +1,157 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.datasource.ReadYourWrites;
+import com.amigoscode.exception.ChangesPrunedException;
+import com.amigoscode.exception.RequestValidationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+// long polls on customer_change: answers at once when there is something after the cursor, otherwise
+// parks the request until a customer_changed notification or the wait runs out
+public class CustomerChangeFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerChangeFeed.class);
+
+    private final CustomerChangeLog changeLog;
+    private final CustomerChangeFeedProperties properties;
+    private final Clock clock;
+    // wakes the waiters off the listener thread, which goes on evicting for the next notification
+    private final Executor wakeUpExecutor;
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+
+    public CustomerChangeFeed(CustomerChangeLog changeLog,
+                              CustomerChangeFeedProperties properties,
+                              Clock clock,
+                              Executor wakeUpExecutor) {
+        this.changeLog = changeLog;
+        this.properties = properties;
+        this.clock = clock;
+        this.wakeUpExecutor = wakeUpExecutor;
+    }
+
+    public DeferredResult<CustomerChangePage> getChanges(Long after, Integer limit, Integer waitSeconds) {
+        if (after == null || after < 0) {
+            throw new RequestValidationException("after must be 0 or a previous nextCursor");
+        }
+        int pageSize = CustomerService.pageSize(limit);
+        Duration wait = waitSeconds == null ? properties.defaultWait() : Duration.ofSeconds(waitSeconds);
+        if (wait.isNegative() || wait.compareTo(properties.maxWait()) > 0) {
+            throw new RequestValidationException("wait must be between 0 and %s seconds".formatted(properties.maxWait().toSeconds()));
+        }
+        // on the primary like every page of the feed, a lagging replica cannot place the cursor a wake-up just handed out
+        if (!ReadYourWrites.onPrimary(() -> changeLog.isKeptCursor(after))) {
+            throw new ChangesPrunedException("changes after %s are no longer kept or it is not a cursor, start over from /customers and changes/latest".formatted(after));
+        }
+
+        // the last look happens on timeout, so a missed notification only costs latency
+        DeferredResult<CustomerChangePage> result = new DeferredResult<>(
+                wait.toMillis(),
+                () -> CustomerChangePage.of(selectChangesAfter(after, pageSize), after)
+        );
+        List<CustomerChange> changes = selectChangesAfter(after, pageSize);
+        if (!changes.isEmpty() || wait.isZero()) {
+            result.setResult(CustomerChangePage.of(changes, after));
+            return result;
+        }
+
+        Waiter waiter = new Waiter(after, pageSize, result);
+        waiters.add(waiter);
+        result.onCompletion(() -> waiters.remove(waiter));
+        // a change may have committed between the query and adding the waiter
+        waiter.poll();
+        return result;
+    }
+
+    public CustomerChangePage getLatest() {
+        long latest = changeLog.selectLatestSeq();
+        return new CustomerChangePage(List.of(), latest);
+    }
+
+    // notifications that arrive before a pending wake-up runs are answered by it
+    @EventListener
+    public void onCustomerChanged(CustomerChangedEvent event) {
+        if (!waiters.isEmpty() && wakeUpPending.compareAndSet(false, true)) {
+            wakeUpExecutor.execute(this::wakeUp);
+        }
+    }
+
+    // every node prunes, the delete is idempotent
+    @Scheduled(initialDelayString = "${customer.changes.prune-interval:PT1H}", fixedDelayString = "${customer.changes.prune-interval:PT1H}")
+    public void pruneChanges() {
+        int deleted = changeLog.deleteChangesBefore(clock.instant().minus(properties.retention()));
+        if (deleted > 0) {
+            log.info("pruned {} customer changes older than {}", deleted, properties.retention());
+        }
+    }
+
+    int waiting() {
+        return waiters.size();
+    }
+
+    // the whole feed reads the primary, the wake-ups answer from the rows the notification announced
+    private List<CustomerChange> selectChangesAfter(long after, int pageSize) {
+        return ReadYourWrites.onPrimary(() -> changeLog.selectChangesAfter(after, pageSize));
+    }
+
+    // one query for all waiters, however many cursors they wait on
+    private void wakeUp() {
+        wakeUpPending.set(false);
+        List<Waiter> waiting = List.copyOf(waiters);
+        if (waiting.isEmpty()) {
+            return;
+        }
+        Set<Long> cursors = waiting.stream().map(waiter -> waiter.after).collect(Collectors.toSet());
+        int limit = waiting.stream().mapToInt(waiter -> waiter.pageSize).max().orElseThrow();
+        Map<Long, List<CustomerChange>> changes;
+        try {
+            changes = ReadYourWrites.onPrimary(() -> changeLog.selectChangesAfterEach(cursors, limit));
+        } catch (DataAccessException e) {
+            waiting.forEach(waiter -> waiter.result.setErrorResult(e));
+            return;
+        }
+        waiting.forEach(waiter -> waiter.offer(changes.getOrDefault(waiter.after, List.of())));
+    }
+
+    private final class Waiter {
+
+        private final long after;
+        private final int pageSize;
+        private final DeferredResult<CustomerChangePage> result;
+
+        private Waiter(long after, int pageSize, DeferredResult<CustomerChangePage> result) {
+            this.after = after;
+            this.pageSize = pageSize;
+            this.result = result;
+        }
+
+        // once on the request thread, right after registering
+        private void poll() {
+            try {
+                offer(selectChangesAfter(after, pageSize));
+            } catch (DataAccessException e) {
+                result.setErrorResult(e);
+            }
+        }
+
+        private void offer(List<CustomerChange> changes) {
+            if (!changes.isEmpty()) {
+                result.setResult(CustomerChangePage.of(changes.subList(0, Math.min(changes.size(), pageSize)), after));
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.amigoscode.customer;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Clock;
+import java.util.concurrent.Executor;
+
+// scheduling is for pruning customer_change
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(CustomerChangeFeedProperties.class)
+public class CustomerChangeFeedConfig {
+
+    // boot's task executor, wake-ups are coalesced so at most one waits in its queue
+    @Bean
+    public CustomerChangeFeed customerChangeFeed(
+            CustomerChangeLog changeLog,
+            CustomerChangeFeedProperties properties,
+            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) Executor taskExecutor) {
+        return new CustomerChangeFeed(changeLog, properties, Clock.systemUTC(), taskExecutor);
+    }
+}
@@ -0,0 +1,14 @@
+package com.amigoscode.customer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties("customer.changes")
+public record CustomerChangeFeedProperties(
+        @DefaultValue("30s") Duration defaultWait,
+        @DefaultValue("60s") Duration maxWait,
+        @DefaultValue("7d") Duration retention
+) {
+}
@@ -0,0 +1,139 @@
+package com.amigoscode.customer;
+
+import org.hibernate.Cache;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+// drops this node's cached customers when any node, or anything else, writes the customer table;
+// the notifications come from the trigger installed by V7 and arrive as soon as the write commits
+public class CustomerChangeListener implements SmartLifecycle {
+
+    static final String CHANNEL = "customer_changed";
+    static final String INSERTED = "+";
+    static final String TRUNCATED = "*";
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerChangeListener.class);
+
+    // its own connection, a pooled one would be held for good
+    private final DataSource dataSource;
+    private final List<CachingCustomerDAO> caches;
+    private final Cache secondLevelCache;
+    private final CustomerCacheInvalidationProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private volatile boolean running;
+    private volatile boolean listening;
+    private Thread thread;
+
+    public CustomerChangeListener(DataSource dataSource,
+                                  List<CachingCustomerDAO> caches,
+                                  Cache secondLevelCache,
+                                  CustomerCacheInvalidationProperties properties,
+                                  ApplicationEventPublisher eventPublisher) {
+        this.dataSource = dataSource;
+        this.caches = caches;
+        this.secondLevelCache = secondLevelCache;
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = new Thread(this::listen, "customer-change-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            thread.join(properties.pollTimeout().multipliedBy(2).toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    boolean isListening() {
+        return listening;
+    }
+
+    void onNotification(String payload) {
+        // second level cache first, the near cache refills through it
+        switch (payload) {
+            case INSERTED -> secondLevelCache.evictDefaultQueryRegion();
+            case TRUNCATED -> evictAll();
+            default -> {
+                Integer id = Integer.valueOf(payload);
+                secondLevelCache.evict(Customer.class, id);
+                secondLevelCache.evictDefaultQueryRegion();
+                caches.forEach(cache -> cache.evict(id));
+            }
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                // whatever changed while nobody was listening is lost
+                evictAll();
+                listening = true;
+                PGConnection notifications = connection.unwrap(PGConnection.class);
+                int timeout = (int) properties.pollTimeout().toMillis();
+                while (running) {
+                    PGNotification[] received = notifications.getNotifications(timeout);
+                    if (received != null) {
+                        for (PGNotification notification : received) {
+                            onNotification(notification.getParameter());
+                        }
+                        // after evicting, whoever reacts may read the customer again
+                        eventPublisher.publishEvent(new CustomerChangedEvent(
+                                Arrays.stream(received).map(PGNotification::getParameter).toList()));
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                listening = false;
+                if (running) {
+                    log.warn("lost {}, reconnecting in {}", CHANNEL, properties.reconnectDelay(), e);
+                    pause();
+                }
+            }
+        }
+        listening = false;
+    }
+
+    private void evictAll() {
+        secondLevelCache.evict(Customer.class);
+        secondLevelCache.evictDefaultQueryRegion();
+        caches.forEach(CachingCustomerDAO::evictAll);
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(properties.reconnectDelay());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.amigoscode.customer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// reads what the V8 triggers append to customer_change. changes are returned in (xid, seq) order and
+// only below the oldest running transaction, a change can commit after a higher seq but never in
+// front of what was already returned
+@Repository
+public class CustomerChangeLog {
+
+    private static final RowMapper<CustomerChange> CHANGE_MAPPER = (rs, rowNum) -> new CustomerChange(
+            rs.getLong(1),
+            rs.getInt(2),
+            CustomerChange.Operation.valueOf(rs.getString(3)),
+            rs.getString(4),
+            rs.getString(5),
+            rs.getObject(6, Integer.class),
+            rs.getObject(7, Integer.class),
+            rs.getTimestamp(8).toInstant()
+    );
+
+    // a returned change or the last pruned one, both parameters are the cursor
+    private static final String CURSOR_POSITION = """
+            SELECT xid, seq FROM customer_change WHERE seq = ?
+            UNION ALL
+            SELECT pruned_xid, pruned_through FROM customer_change_retention WHERE pruned_through = ?
+            LIMIT 1
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CustomerChangeLog(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // the cursor is a seq, its row's xid gives the position to continue from
+    @Transactional(readOnly = true)
+    public List<CustomerChange> selectChangesAfter(long after, int limit) {
+        var sql = """
+                WITH cursor AS (%s)
+                SELECT c.seq, c.customer_id, c.operation, c.name, c.email, c.age, c.version, c.changed_at
+                FROM customer_change c, cursor
+                WHERE (c.xid, c.seq) > (cursor.xid, cursor.seq)
+                AND c.xid < pg_snapshot_xmin(pg_current_snapshot())
+                ORDER BY c.xid, c.seq
+                LIMIT ?
+                """.formatted(CURSOR_POSITION);
+        return jdbcTemplate.query(sql, CHANGE_MAPPER, after, after, limit);
+    }
+
+    // one round trip for every waiting cursor, each answered like selectChangesAfter; cursors with
+    // nothing after them are left out
+    @Transactional(readOnly = true)
+    public Map<Long, List<CustomerChange>> selectChangesAfterEach(Collection<Long> cursors, int limit) {
+        var sql = """
+                SELECT c.seq, c.customer_id, c.operation, c.name, c.email, c.age, c.version, c.changed_at, a.after
+                FROM unnest(?) AS a(after)
+                CROSS JOIN LATERAL (
+                    SELECT xid, seq FROM customer_change WHERE seq = a.after
+                    UNION ALL
+                    SELECT pruned_xid, pruned_through FROM customer_change_retention WHERE pruned_through = a.after
+                    LIMIT 1
+                ) cursor
+                CROSS JOIN LATERAL (
+                    SELECT * FROM customer_change c
+                    WHERE (c.xid, c.seq) > (cursor.xid, cursor.seq)
+                    AND c.xid < pg_snapshot_xmin(pg_current_snapshot())
+                    ORDER BY c.xid, c.seq
+                    LIMIT ?
+                ) c
+                ORDER BY a.after, c.xid, c.seq
+                """;
+        Map<Long, List<CustomerChange>> changes = new HashMap<>();
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(sql);
+                    statement.setArray(1, connection.createArrayOf("bigint", cursors.toArray()));
+                    statement.setInt(2, limit);
+                    return statement;
+                },
+                (RowCallbackHandler) rs -> changes
+                        .computeIfAbsent(rs.getLong(9), after -> new ArrayList<>())
+                        .add(CHANGE_MAPPER.mapRow(rs, rs.getRow()))
+        );
+        return changes;
+    }
+
+    // false once the changes after it were pruned, a cursor can only be 0 before the first prune
+    @Transactional(readOnly = true)
+    public boolean isKeptCursor(long after) {
+        var sql = "SELECT EXISTS (%s)".formatted(CURSOR_POSITION);
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, after, after));
+    }
+
+    @Transactional(readOnly = true)
+    public long selectLatestSeq() {
+        var sql = """
+                SELECT coalesce(
+                    (SELECT seq FROM customer_change
+                     WHERE xid < pg_snapshot_xmin(pg_current_snapshot())
+                     ORDER BY xid DESC, seq DESC
+                     LIMIT 1),
+                    pruned_through
+                )
+                FROM customer_change_retention
+                """;
+        Long seq = jdbcTemplate.queryForObject(sql, Long.class);
+        return seq == null ? 0 : seq;
+    }
+
+    // deletes up to the last returnable change older than changedAt, in the order readers page through them
+    @Transactional
+    public int deleteChangesBefore(Instant changedAt) {
+        var sql = """
+                WITH horizon AS (
+                    SELECT xid, seq FROM customer_change
+                    WHERE changed_at < ?
+                    AND xid < pg_snapshot_xmin(pg_current_snapshot())
+                    ORDER BY xid DESC, seq DESC
+                    LIMIT 1
+                ), pruned AS (
+                    DELETE FROM customer_change c
+                    USING horizon h
+                    WHERE (c.xid, c.seq) <= (h.xid, h.seq)
+                    RETURNING c.seq
+                )
+                UPDATE customer_change_retention r
+                SET pruned_xid = coalesce((SELECT xid FROM horizon), r.pruned_xid),
+                    pruned_through = coalesce((SELECT seq FROM horizon), r.pruned_through)
+                RETURNING (SELECT count(*) FROM pruned)
+                """;
+        Integer deleted = jdbcTemplate.queryForObject(sql, Integer.class, Timestamp.from(changedAt));
+        return deleted == null ? 0 : deleted;
+    }
+}
@@ -0,0 +1,14 @@
+package com.amigoscode.customer;
+
+import java.util.List;
+
+// nextCursor is the after for the next request, unchanged when nothing new was found
+public record CustomerChangePage(
+        List<CustomerChange> changes,
+        long nextCursor
+) {
+
+    static CustomerChangePage of(List<CustomerChange> changes, long after) {
+        return new CustomerChangePage(changes, changes.isEmpty() ? after : changes.get(changes.size() - 1).seq());
+    }
+}
@@ -0,0 +1,7 @@
+package com.amigoscode.customer;
+
+import java.util.List;
+
+// published by CustomerChangeListener once per batch of customer_changed notifications
+public record CustomerChangedEvent(List<String> payloads) {
+}
@@ -1,12 +1,16 @@
 package com.amigoscode.customer;
 
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
-
-
+import java.util.Set;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("api/v1")
 public class CustomerController {
 
@@ -16,14 +20,54 @@ public class CustomerController {
         this.customerService = customerService;
     }
 
+    // the ETag is checked before the page query, a 304 only costs the watermark lookup
     @GetMapping("/customers")
-    public List<Customer> getCustomers() {
-        return customerService.getAllCustomer();
+    public ResponseEntity<CustomerPage> getCustomers(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "minAge", required = false) Integer minAge,
+            @RequestParam(value = "maxAge", required = false) Integer maxAge,
+            @RequestParam(value = "emailDomain", required = false) String emailDomain,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "direction", required = false) String direction,
+            @RequestParam(value = "fields", required = false) String fields,
+            WebRequest request
+    ) {
+        CustomerFilter filter = CustomerFilter.of(minAge, maxAge, emailDomain, sort, direction);
+        Set<CustomerField> selected = CustomerField.parse(fields);
+        String eTag = CustomerETags.of(customerService.getCollectionVersion());
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .body(customerService.getCustomers(after, limit, filter, selected));
+    }
+
+    // results only change when customers do, so the list ETag covers search too
+    @GetMapping("/customers/search")
+    public ResponseEntity<CustomerPage> searchCustomers(
+            @RequestParam("q") String query,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            WebRequest request
+    ) {
+        String eTag = CustomerETags.of(customerService.getCollectionVersion());
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .body(customerService.searchCustomers(query, after, limit));
     }
 
+    // a matching If-None-Match gets a 304 without the body being written
     @GetMapping("/customers/{customerId}")
-    public Customer getCustomer(@PathVariable("customerId") Integer customerId){
-        return customerService.getCustomer(customerId);
+    public ResponseEntity<Customer> getCustomer(@PathVariable("customerId") Integer customerId){
+        Customer customer = customerService.getCustomer(customerId);
+        return ResponseEntity.ok()
+                .eTag(CustomerETags.of(customer.getVersion()))
+                .body(customer);
     }
 
     @PostMapping("/customers")
@@ -31,17 +75,24 @@ public class CustomerController {
         customerService.addCustomer(customerRegistrationRequest);
     }
 
+    @PostMapping("/customers/bulk")
+    public List<CustomerRegistrationResult> registerCustomers(@RequestBody List<CustomerRegistrationRequest> customerRegistrationRequests){
+        return customerService.addCustomers(customerRegistrationRequests);
+    }
+
     @DeleteMapping("/customers/{customerId}")
     public void deleteCustomer(@PathVariable("customerId") Integer customerId){
         customerService.deleteCustomer(customerId);
     }
 
+    // without If-Match a concurrent change is a 409, with a stale If-Match it is a 412
     @PutMapping("/customers/{customerId}")
     public void updateCustomer(
             @PathVariable("customerId") Integer customerId,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestBody CustomerUpdateRequest customerUpdateRequest
     ){
-        customerService.updateCustomer(customerId, customerUpdateRequest);
+        customerService.updateCustomer(customerId, customerUpdateRequest, CustomerETags.ifMatchVersion(ifMatch));
     }
 
 }
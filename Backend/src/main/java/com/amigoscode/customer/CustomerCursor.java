@@ -0,0 +1,58 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.RequestValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// where a page ended: the last row's sort key and id, so the next page neither depends on that row
+// still existing nor on it keeping its name or age; clients get it as an opaque token
+record CustomerCursor(CustomerSort sort, Object key, int id) {
+
+    static CustomerCursor of(Customer customer, CustomerSort sort) {
+        return new CustomerCursor(sort, sort == CustomerSort.ID ? null : sort.field().get(customer), customer.getId());
+    }
+
+    static CustomerCursor ofId(int id) {
+        return new CustomerCursor(CustomerSort.ID, null, id);
+    }
+
+    // the key goes last, a name may contain the separator
+    String encode() {
+        String cursor = key == null
+                ? sort.column() + ":" + id
+                : sort.column() + ":" + id + ":" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // null for the first page; a token from a listing in another order does not say where this one stopped
+    static CustomerCursor decode(String token, CustomerSort sort) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token.strip()), StandardCharsets.UTF_8).split(":", 3);
+            if (!parts[0].equals(sort.column()) || parts.length != (sort == CustomerSort.ID ? 2 : 3)) {
+                throw new IllegalArgumentException(token);
+            }
+            int id = Integer.parseInt(parts[1]);
+            return switch (sort) {
+                case ID -> ofId(id);
+                case NAME -> new CustomerCursor(sort, parts[2], id);
+                case AGE -> new CustomerCursor(sort, Integer.valueOf(parts[2]), id);
+            };
+        } catch (IllegalArgumentException e) {
+            throw new RequestValidationException("after %s is not a nextCursor of this listing".formatted(token));
+        }
+    }
+
+    // a customer with just the id and sort key set, for comparing rows against the cursor in memory
+    Customer position() {
+        Customer position = new Customer();
+        position.setId(id);
+        if (sort != CustomerSort.ID) {
+            sort.field().set(position, key);
+        }
+        return position;
+    }
+}
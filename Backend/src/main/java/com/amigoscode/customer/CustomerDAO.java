@@ -1,18 +1,33 @@
 package com.amigoscode.customer;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 
 public interface CustomerDAO {
 
     List<Customer> selectAllCustomers();
+    List<Customer> selectCustomersAfter(int afterId, int limit);
+    // filtered and sorted, after is where the previous page ended or null for the first page;
+    // only the requested fields are read, the others stay null
+    List<Customer> selectCustomers(CustomerFilter filter, Set<CustomerField> fields, CustomerCursor after, int limit);
+    // customers whose name or email contains the query, case-insensitive, paged by id like selectCustomersAfter
+    List<Customer> searchCustomers(String query, int afterId, int limit);
     Optional<Customer> selectCustomerById(Integer id);
     void insertCustomer(Customer customer);
+    void insertCustomers(List<Customer> customers);
+    Set<String> selectExistingEmails(Collection<String> emails);
     boolean existsPersonWithEmail(String email);
-    void deleteCustomer(Integer customerId);
+    // true when a row was deleted, so callers need no existence check first
+    boolean deleteCustomer(Integer customerId);
 
     boolean existsCustomerWithId(Integer id);
 
-    void updateCustomer(Customer update);
+    // true when a row was updated, false when there is no customer with that id
+    boolean updateCustomer(Customer update);
+
+    // changes whenever any customer is inserted, updated or deleted
+    long selectCollectionVersion();
 }
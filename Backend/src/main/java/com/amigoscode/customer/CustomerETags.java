@@ -0,0 +1,30 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.PreconditionFailedException;
+
+// strong ETags are the quoted version, "*" in If-Match means any version
+final class CustomerETags {
+
+    private CustomerETags() {
+    }
+
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    static Integer ifMatchVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String eTag = ifMatch.trim();
+        // weak tags never match strongly, and we only ever hand out one tag per customer
+        if (eTag.length() < 3 || !eTag.startsWith("\"") || !eTag.endsWith("\"")) {
+            throw new PreconditionFailedException("If-Match %s does not match any customer version".formatted(ifMatch));
+        }
+        try {
+            return Integer.valueOf(eTag.substring(1, eTag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("If-Match %s does not match any customer version".formatted(ifMatch));
+        }
+    }
+}
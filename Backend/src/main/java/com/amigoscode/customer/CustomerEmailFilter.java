@@ -0,0 +1,83 @@
+package com.amigoscode.customer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bloom filter over customer emails: "false" is definite, "true" means ask the database.
+// Bits are never cleared, so deleted emails only cost an extra database check.
+@Component
+public class CustomerEmailFilter {
+
+    private final AtomicLongArray bits;
+    private final int bitCount;
+    private final int hashCount;
+    private volatile boolean warm;
+
+    public CustomerEmailFilter(
+            @Value("${customer.email-filter.expected-insertions:1000000}") int expectedInsertions,
+            @Value("${customer.email-filter.false-positive-probability:0.01}") double falsePositiveProbability) {
+        long optimalBits = (long) Math.ceil(
+                -expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.min(Math.max(optimalBits, Long.SIZE), Integer.MAX_VALUE - Long.SIZE);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        this.bits = new AtomicLongArray((bitCount + Long.SIZE - 1) / Long.SIZE);
+    }
+
+    public void put(String email) {
+        long hash = hash(email);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            int bit = index(h1 + i * h2);
+            long mask = 1L << bit;
+            bits.getAndAccumulate(bit >>> 6, mask, (word, m) -> word | m);
+        }
+    }
+
+    public boolean mightContain(String email) {
+        // until the filter has seen every stored email it cannot rule anything out
+        if (!warm) {
+            return true;
+        }
+        long hash = hash(email);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            int bit = index(h1 + i * h2);
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void markWarm() {
+        warm = true;
+    }
+
+    public boolean isWarm() {
+        return warm;
+    }
+
+    private int index(int combinedHash) {
+        return (combinedHash & Integer.MAX_VALUE) % bitCount;
+    }
+
+    // 64-bit FNV-1a followed by a murmur3 finalizer, split into two 32-bit hashes
+    private static long hash(String email) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : email.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
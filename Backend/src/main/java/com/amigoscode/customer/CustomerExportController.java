@@ -0,0 +1,53 @@
+package com.amigoscode.customer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+@RestController
+@Profile("!reactive")
+@RequestMapping("api/v1")
+public class CustomerExportController {
+
+    static final int FLUSH_EVERY_ROWS = CustomerJDBCDataAccessAndService.EXPORT_FETCH_SIZE;
+
+    private final CustomerJDBCDataAccessAndService customerDataAccess;
+    private final ObjectMapper objectMapper;
+
+    public CustomerExportController(CustomerJDBCDataAccessAndService customerDataAccess, ObjectMapper objectMapper) {
+        this.customerDataAccess = customerDataAccess;
+        this.objectMapper = objectMapper;
+    }
+
+    @GetMapping("/customers/export")
+    public void exportCustomers(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        int[] written = {0};
+        customerDataAccess.streamAllCustomers(customer -> {
+            try {
+                generator.writeObject(customer);
+                generator.writeRaw('\n');
+                // flush regularly so the client gets bytes before the query finishes
+                if (++written[0] % FLUSH_EVERY_ROWS == 0) {
+                    generator.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        generator.flush();
+    }
+}
@@ -0,0 +1,86 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.RequestValidationException;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+public enum CustomerField {
+    ID("id"),
+    NAME("name"),
+    EMAIL("email"),
+    AGE("age");
+
+    static final Set<CustomerField> ALL = Collections.unmodifiableSet(EnumSet.allOf(CustomerField.class));
+
+    // column and entity attribute share the name, as with CustomerSort
+    private final String column;
+
+    CustomerField(String column) {
+        this.column = column;
+    }
+
+    String column() {
+        return column;
+    }
+
+    // id is always selected, page cursors are built from it
+    static Set<CustomerField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        Set<CustomerField> selected = EnumSet.of(ID);
+        for (String field : fields.split(",")) {
+            selected.add(of(field.strip()));
+        }
+        return selected.equals(ALL) ? ALL : Collections.unmodifiableSet(selected);
+    }
+
+    // fields plus one more, e.g. the sort key a page cursor is built from
+    static Set<CustomerField> with(Set<CustomerField> fields, CustomerField field) {
+        if (fields.contains(field)) {
+            return fields;
+        }
+        Set<CustomerField> selected = EnumSet.copyOf(fields);
+        selected.add(field);
+        return selected.equals(ALL) ? ALL : Collections.unmodifiableSet(selected);
+    }
+
+    private static CustomerField of(String field) {
+        for (CustomerField value : values()) {
+            if (value.column.equals(field.toLowerCase(Locale.ROOT))) {
+                return value;
+            }
+        }
+        throw new RequestValidationException("unknown field %s, fields are id, name, email, age".formatted(field));
+    }
+
+    Object get(Customer customer) {
+        return switch (this) {
+            case ID -> customer.getId();
+            case NAME -> customer.getName();
+            case EMAIL -> customer.getEmail();
+            case AGE -> customer.getAge();
+        };
+    }
+
+    void set(Customer customer, Object value) {
+        switch (this) {
+            case ID -> customer.setId((Integer) value);
+            case NAME -> customer.setName((String) value);
+            case EMAIL -> customer.setEmail((String) value);
+            case AGE -> customer.setAge((Integer) value);
+        }
+    }
+
+    // unselected fields stay null and are left out of the JSON
+    static Customer project(Customer source, Set<CustomerField> fields) {
+        Customer projected = new Customer();
+        for (CustomerField field : fields) {
+            field.set(projected, field.get(source));
+        }
+        return projected;
+    }
+}
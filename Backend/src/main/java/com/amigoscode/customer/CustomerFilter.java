@@ -0,0 +1,73 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.RequestValidationException;
+
+import java.util.Comparator;
+import java.util.Locale;
+
+public record CustomerFilter(
+        Integer minAge,
+        Integer maxAge,
+        String emailDomain,
+        CustomerSort sort,
+        boolean descending
+) {
+
+    static final CustomerFilter NONE = new CustomerFilter(null, null, null, CustomerSort.ID, false);
+
+    static CustomerFilter of(Integer minAge, Integer maxAge, String emailDomain, String sort, String direction) {
+        if ((minAge != null && minAge < 0) || (maxAge != null && maxAge < 0)) {
+            throw new RequestValidationException("age filters must not be negative");
+        }
+        if (minAge != null && maxAge != null && minAge > maxAge) {
+            throw new RequestValidationException("minAge %s is greater than maxAge %s".formatted(minAge, maxAge));
+        }
+        return new CustomerFilter(minAge, maxAge, domain(emailDomain), sort(sort), descending(direction));
+    }
+
+    boolean matches(Customer customer) {
+        return (minAge == null || customer.getAge() >= minAge)
+                && (maxAge == null || customer.getAge() <= maxAge)
+                && (emailDomain == null || emailDomain.equals(domainOf(customer.getEmail())));
+    }
+
+    Comparator<Customer> order() {
+        return descending ? sort.order().reversed() : sort.order();
+    }
+
+    // mirrors the email_domain generated column, lower(split_part(email, '@', 2))
+    static String domainOf(String email) {
+        String[] parts = email.split("@", 3);
+        return parts.length < 2 ? "" : parts[1].toLowerCase(Locale.ROOT);
+    }
+
+    private static String domain(String emailDomain) {
+        if (emailDomain == null || emailDomain.isBlank()) {
+            return null;
+        }
+        String domain = emailDomain.strip().toLowerCase(Locale.ROOT);
+        return domain.startsWith("@") ? domain.substring(1) : domain;
+    }
+
+    private static CustomerSort sort(String sort) {
+        if (sort == null) {
+            return CustomerSort.ID;
+        }
+        for (CustomerSort value : CustomerSort.values()) {
+            if (value.column().equalsIgnoreCase(sort.strip())) {
+                return value;
+            }
+        }
+        throw new RequestValidationException("sort must be one of id, name, age");
+    }
+
+    private static boolean descending(String direction) {
+        if (direction == null || direction.equalsIgnoreCase("asc")) {
+            return false;
+        }
+        if (direction.equalsIgnoreCase("desc")) {
+            return true;
+        }
+        throw new RequestValidationException("direction must be asc or desc");
+    }
+}
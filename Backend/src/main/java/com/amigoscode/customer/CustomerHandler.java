@@ -0,0 +1,96 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.RequestValidationException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@Component
+@Profile("reactive")
+public class CustomerHandler {
+
+    private static final ParameterizedTypeReference<List<CustomerRegistrationRequest>> REGISTRATION_REQUESTS =
+            new ParameterizedTypeReference<>() {};
+
+    private final ReactiveCustomerService customerService;
+
+    public CustomerHandler(ReactiveCustomerService customerService) {
+        this.customerService = customerService;
+    }
+
+    public Mono<ServerResponse> getCustomers(ServerRequest request) {
+        return Mono.defer(() -> customerService.getCustomers(
+                        request.queryParam("after").orElse(null),
+                        integerParam(request, "limit")))
+                .flatMap(page -> ServerResponse.ok().bodyValue(page));
+    }
+
+    // netty only asks for more rows once the previous ones are written, that demand reaches the R2DBC cursor
+    public Mono<ServerResponse> exportCustomers(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(customerService.streamCustomers(), Customer.class);
+    }
+
+    // the version only travels as the ETag, If-Match on updates is built from it; a matching If-None-Match gets a 304
+    public Mono<ServerResponse> getCustomer(ServerRequest request) {
+        return Mono.defer(() -> customerService.getCustomer(customerId(request)))
+                .flatMap(customer -> {
+                    String eTag = CustomerETags.of(customer.getVersion());
+                    return request.checkNotModified(eTag)
+                            .switchIfEmpty(Mono.defer(() -> ServerResponse.ok().eTag(eTag).bodyValue(customer)));
+                });
+    }
+
+    public Mono<ServerResponse> registerCustomer(ServerRequest request) {
+        return request.bodyToMono(CustomerRegistrationRequest.class)
+                .flatMap(customerService::addCustomer)
+                .then(ServerResponse.ok().build());
+    }
+
+    public Mono<ServerResponse> registerCustomers(ServerRequest request) {
+        return request.bodyToMono(REGISTRATION_REQUESTS)
+                .flatMap(customerService::addCustomers)
+                .flatMap(results -> ServerResponse.ok().bodyValue(results));
+    }
+
+    public Mono<ServerResponse> deleteCustomer(ServerRequest request) {
+        return Mono.defer(() -> customerService.deleteCustomer(customerId(request)))
+                .then(ServerResponse.ok().build());
+    }
+
+    public Mono<ServerResponse> updateCustomer(ServerRequest request) {
+        return request.bodyToMono(CustomerUpdateRequest.class)
+                .flatMap(update -> customerService.updateCustomer(
+                        customerId(request),
+                        update,
+                        CustomerETags.ifMatchVersion(request.headers().firstHeader(HttpHeaders.IF_MATCH))
+                ))
+                .then(ServerResponse.ok().build());
+    }
+
+    private static Integer customerId(ServerRequest request) {
+        return parseInteger("customerId", request.pathVariable("customerId"));
+    }
+
+    private static Integer integerParam(ServerRequest request, String name) {
+        return request.queryParam(name)
+                .map(value -> parseInteger(name, value))
+                .orElse(null);
+    }
+
+    private static Integer parseInteger(String name, String value) {
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new RequestValidationException("%s must be a number".formatted(name));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.amigoscode.customer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// pooled-lo allocation over customer_id_seq, the same scheme hibernate uses for Customer:
+// every nextval reserves [value, value + ALLOCATION_SIZE), so JDBC and JPA blocks never overlap
+@Component
+public class CustomerIdAllocator {
+
+    static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    // a lock rather than synchronized, the database call must not pin virtual threads
+    private final ReentrantLock lock = new ReentrantLock();
+    private long next;
+    private long limit;
+
+    public CustomerIdAllocator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public int nextId() {
+        lock.lock();
+        try {
+            if (next == limit) {
+                Long low = jdbcTemplate.queryForObject("SELECT nextval('customer_id_seq')", Long.class);
+                if (low == null) {
+                    throw new IllegalStateException("customer_id_seq returned no value");
+                }
+                next = low;
+                limit = low + ALLOCATION_SIZE;
+            }
+            return Math.toIntExact(next++);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
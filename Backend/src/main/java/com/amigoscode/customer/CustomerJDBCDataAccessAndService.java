@@ -1,36 +1,183 @@
 package com.amigoscode.customer;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Repository("jdbc")
 public class CustomerJDBCDataAccessAndService implements CustomerDAO{
 
+    private static final Logger log = LoggerFactory.getLogger(CustomerJDBCDataAccessAndService.class);
+
+    static final int EXPORT_FETCH_SIZE = 1000;
+    static final int INSERT_BATCH_SIZE = 500;
+    private static final String[] UPDATABLE_COLUMNS = {"name", "age", "email"};
+    private static final String[] UPDATE_SQL = updateStatements("");
+    private static final String[] VERSIONED_UPDATE_SQL = updateStatements(" AND version = ?");
+
     private final JdbcTemplate jdbcTemplate;
     private final CustomerRowMapper customerRowMapper;
+    private final CustomerIdAllocator customerIdAllocator;
 
-    public CustomerJDBCDataAccessAndService(JdbcTemplate jdbcTemplate, CustomerRowMapper customerRowMapper) {
+    public CustomerJDBCDataAccessAndService(JdbcTemplate jdbcTemplate,
+                                            CustomerRowMapper customerRowMapper,
+                                            CustomerIdAllocator customerIdAllocator) {
         this.jdbcTemplate = jdbcTemplate;
         this.customerRowMapper = customerRowMapper;
+        this.customerIdAllocator = customerIdAllocator;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Customer> selectAllCustomers() {
         var sql = """
-                SELECT id,name,email,age
+                SELECT id,name,email,age,version
+                FROM customer
+                """;
+        // read in batches through the transaction's cursor, the driver would otherwise hold every raw row next to the list
+        return jdbcTemplate.query(fetching(sql), customerRowMapper);
+    }
+
+    // postgres only uses a server-side cursor with autocommit off, hence the transaction
+    @Transactional(readOnly = true)
+    public void streamAllCustomers(Consumer<CustomerRow> consumer) {
+        var sql = """
+                SELECT id,name,email,age,version
+                FROM customer
+                ORDER BY id
+                """;
+        jdbcTemplate.query(
+                fetching(sql),
+                (RowCallbackHandler) rs -> consumer.accept(customerRowMapper.mapCustomerRow(rs))
+        );
+    }
+
+    // just the email column, through the same cursor, for the email filter warm-up
+    @Transactional(readOnly = true)
+    public void streamAllEmails(Consumer<String> consumer) {
+        var sql = """
+                SELECT email
                 FROM customer
                 """;
-        return  jdbcTemplate.query(sql, customerRowMapper);
+        jdbcTemplate.query(
+                fetching(sql),
+                (RowCallbackHandler) rs -> consumer.accept(rs.getString(1))
+        );
+    }
+
+    private static PreparedStatementCreator fetching(String sql) {
+        return connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    sql,
+                    ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY
+            );
+            statement.setFetchSize(EXPORT_FETCH_SIZE);
+            return statement;
+        };
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<Customer> selectCustomersAfter(int afterId, int limit) {
+        var sql = """
+                SELECT id,name,email,age,version
+                FROM customer
+                WHERE id > ?
+                ORDER BY id
+                LIMIT ?
+                """;
+        return jdbcTemplate.query(sql, customerRowMapper, afterId, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Customer> selectCustomers(CustomerFilter filter, Set<CustomerField> fields, CustomerCursor after, int limit) {
+        List<Object> args = new ArrayList<>(5);
+        String sql = selectCustomersSql(filter, fields, after, limit, args);
+        // reads only the selected columns, the JSON leaves out the fields that stay null
+        RowMapper<Customer> rowMapper = fields.equals(CustomerField.ALL) ? customerRowMapper : customerRowMapper.projection(fields);
+        return jdbcTemplate.query(sql, rowMapper, args.toArray());
+    }
+
+    // each sort can walk its (column, id) index and the cursor is a row comparison the index seeks to,
+    // package-private so tests can EXPLAIN it
+    static String selectCustomersSql(CustomerFilter filter, Set<CustomerField> fields, CustomerCursor after, int limit, List<Object> args) {
+        StringJoiner where = new StringJoiner(" AND ", " WHERE ", "").setEmptyValue("");
+        if (filter.minAge() != null){
+            where.add("age >= ?");
+            args.add(filter.minAge());
+        }
+        if (filter.maxAge() != null){
+            where.add("age <= ?");
+            args.add(filter.maxAge());
+        }
+        if (filter.emailDomain() != null){
+            where.add("email_domain = ?");
+            args.add(filter.emailDomain());
+        }
+
+        String column = filter.sort().column();
+        String comparison = filter.descending() ? " < " : " > ";
+        String direction = filter.descending() ? " DESC" : "";
+        if (after != null && filter.sort() == CustomerSort.ID){
+            where.add("id" + comparison + "?");
+            args.add(after.id());
+        } else if (after != null){
+            where.add("(" + column + ", id)" + comparison + "(?, ?)");
+            args.add(after.key());
+            args.add(after.id());
+        }
+        args.add(limit);
+
+        String orderBy = filter.sort() == CustomerSort.ID
+                ? "id" + direction
+                : column + direction + ", id" + direction;
+        String columns = fields.equals(CustomerField.ALL)
+                ? "id,name,email,age,version"
+                : fields.stream().map(CustomerField::column).collect(Collectors.joining(","));
+        return "SELECT " + columns + " FROM customer" + where + " ORDER BY " + orderBy + " LIMIT ?";
+    }
+
+    // both ILIKE terms are served by the trigram indexes, bitmap-ORed before the sort by id
+    @Override
+    @Transactional(readOnly = true)
+    public List<Customer> searchCustomers(String query, int afterId, int limit) {
+        var sql = """
+                SELECT id,name,email,age,version
+                FROM customer
+                WHERE (name ILIKE ? OR email ILIKE ?)
+                AND id > ?
+                ORDER BY id
+                LIMIT ?
+                """;
+        String pattern = CustomerSearchPatterns.contains(query);
+        return jdbcTemplate.query(sql, customerRowMapper, pattern, pattern, afterId, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Optional<Customer> selectCustomerById(Integer id) {
         var sql = """
-                SELECT id,name,email,age
+                SELECT id,name,email,age,version
                 FROM customer
                 WHERE id = ?
                 """;
@@ -42,19 +189,63 @@ public class CustomerJDBCDataAccessAndService implements CustomerDAO{
     @Override
     public void insertCustomer(Customer customer) {
         var sql = """
-                INSERT INTO customer(name, email, age)
-                VALUES (?, ?, ?);
+                INSERT INTO customer(id, name, email, age)
+                VALUES (?, ?, ?, ?);
                 """;
+        customer.setId(customerIdAllocator.nextId());
         int result = jdbcTemplate.update(
                 sql,
+                customer.getId(),
                 customer.getName(),
                 customer.getEmail(),
                 customer.getAge()
         );
-        System.out.println("jdbcTemplate.update = "+result);
+        log.debug("inserted customer {} ({} rows)", customer.getId(), result);
+    }
+
+    // one transaction, so a concurrent duplicate rolls back the whole request
+    @Override
+    @Transactional
+    public void insertCustomers(List<Customer> customers) {
+        var sql = """
+                INSERT INTO customer(id, name, email, age)
+                VALUES (?, ?, ?, ?);
+                """;
+        customers.forEach(customer -> customer.setId(customerIdAllocator.nextId()));
+        jdbcTemplate.batchUpdate(
+                sql,
+                customers,
+                INSERT_BATCH_SIZE,
+                (ps, customer) -> {
+                    ps.setInt(1, customer.getId());
+                    ps.setString(2, customer.getName());
+                    ps.setString(3, customer.getEmail());
+                    ps.setInt(4, customer.getAge());
+                }
+        );
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        var sql = """
+                SELECT email
+                FROM customer
+                WHERE email = ANY (?)
+                """;
+        List<String> existing = jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(sql);
+                    statement.setArray(1, connection.createArrayOf("text", emails.toArray()));
+                    return statement;
+                },
+                (rs, rowNum) -> rs.getString("email")
+        );
+        return new HashSet<>(existing);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public boolean existsPersonWithEmail(String email) {
         var sql = """
                 SELECT count(id)
@@ -67,17 +258,19 @@ public class CustomerJDBCDataAccessAndService implements CustomerDAO{
     }
 
     @Override
-    public void deleteCustomer(Integer customerId) {
+    public boolean deleteCustomer(Integer customerId) {
         var sql = """
                 DELETE 
                 FROM customer
                 WHERE id = ?
                 """;
         int result = jdbcTemplate.update(sql, customerId);
-        System.out.println("deleteCustomer result = " + result);
+        log.debug("deleted customer {} ({} rows)", customerId, result);
+        return result > 0;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public boolean existsCustomerWithId(Integer id) {
         var sql = """
                 SELECT count(id)
@@ -90,34 +283,73 @@ public class CustomerJDBCDataAccessAndService implements CustomerDAO{
     }
 
     @Override
-    public void updateCustomer(Customer update) {
+    @Transactional
+    public boolean updateCustomer(Customer update) {
+        int columns = 0;
+        List<Object> args = new ArrayList<>(UPDATABLE_COLUMNS.length + 1);
         if (update.getName() != null){
-            String sql = "UPDATE customer SET name = ? WHERE id = ?";
-            int result = jdbcTemplate.update(
-                    sql,
-                    update.getName(),
-                    update.getId()
-            );
-
-            System.out.println("updateCustomer result = " + result);
+            columns |= 1;
+            args.add(update.getName());
         }
-
         if (update.getAge() != null){
-            String sql = "UPDATE customer SET age = ? WHERE id = ?";
-            int result = jdbcTemplate.update(
-                    sql,
-                    update.getAge(),
-                    update.getId()
-            );
+            columns |= 1 << 1;
+            args.add(update.getAge());
         }
-
         if (update.getEmail() != null){
-            String sql = "UPDATE customer SET email = ? WHERE id = ?";
-            int result = jdbcTemplate.update(
-                    sql,
-                    update.getEmail(),
-                    update.getId()
-            );
+            columns |= 1 << 2;
+            args.add(update.getEmail());
+        }
+        if (columns == 0){
+            return existsCustomerWithId(update.getId());
+        }
+        args.add(update.getId());
+        if (update.getVersion() == null){
+            int result = jdbcTemplate.update(UPDATE_SQL[columns], args.toArray());
+            log.debug("updated customer {} ({} rows)", update.getId(), result);
+            return result > 0;
+        }
+
+        args.add(update.getVersion());
+        int result = jdbcTemplate.update(VERSIONED_UPDATE_SQL[columns], args.toArray());
+        log.debug("updated customer {} ({} rows)", update.getId(), result);
+        // no row matched, only a second look tells a deleted customer from a stale version
+        if (result == 0 && existsCustomerWithId(update.getId())){
+            throw new OptimisticLockingFailureException("customer %s is no longer at version %s".formatted(update.getId(), update.getVersion()));
+        }
+        return result > 0;
+    }
+
+    // the newest committed change nothing older can still commit in front of, see V8
+    @Override
+    @Transactional(readOnly = true)
+    public long selectCollectionVersion() {
+        var sql = """
+                SELECT CAST(CAST(greatest(
+                    (SELECT xid FROM customer_change
+                     WHERE xid < pg_snapshot_xmin(pg_current_snapshot())
+                     ORDER BY xid DESC
+                     LIMIT 1),
+                    pruned_xid
+                ) AS text) AS bigint)
+                FROM customer_change_retention
+                """;
+        Long version = jdbcTemplate.queryForObject(sql, Long.class);
+
+        return version == null ? 0 : version;
+    }
+
+    // one statement text per column combination, so the driver reuses its prepared statement
+    private static String[] updateStatements(String versionCondition) {
+        String[] statements = new String[1 << UPDATABLE_COLUMNS.length];
+        for (int columns = 1; columns < statements.length; columns++) {
+            StringJoiner assignments = new StringJoiner(", ");
+            for (int i = 0; i < UPDATABLE_COLUMNS.length; i++) {
+                if ((columns & (1 << i)) != 0) {
+                    assignments.add(UPDATABLE_COLUMNS[i] + " = ?");
+                }
+            }
+            statements[columns] = "UPDATE customer SET " + assignments + ", version = version + 1 WHERE id = ?" + versionCondition;
         }
+        return statements;
     }
 }
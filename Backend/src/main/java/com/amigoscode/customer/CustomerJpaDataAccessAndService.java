@@ -1,25 +1,68 @@
 package com.amigoscode.customer;
 
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository("jpa")
 public class CustomerJpaDataAccessAndService implements CustomerDAO{
 
     private final CustomerRepository customerRepository;
+    private final Cache secondLevelCache;
 
-    public CustomerJpaDataAccessAndService(CustomerRepository customerRepository) {
+    public CustomerJpaDataAccessAndService(CustomerRepository customerRepository, EntityManagerFactory entityManagerFactory) {
         this.customerRepository = customerRepository;
+        this.secondLevelCache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Customer> selectAllCustomers() {
         return customerRepository.findAll();
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<Customer> selectCustomersAfter(int afterId, int limit) {
+        return customerRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Customer> selectCustomers(CustomerFilter filter, Set<CustomerField> fields, CustomerCursor after, int limit) {
+        Specification<Customer> specification = CustomerSpecifications.matching(filter);
+        if (after != null) {
+            specification = specification.and(CustomerSpecifications.after(filter, after));
+        }
+        if (!fields.equals(CustomerField.ALL)) {
+            return customerRepository.findProjected(specification, CustomerSpecifications.sort(filter), fields, limit);
+        }
+        return customerRepository.findBy(specification, query -> query
+                .sortBy(CustomerSpecifications.sort(filter))
+                .limit(limit)
+                .all());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Customer> searchCustomers(String query, int afterId, int limit) {
+        return customerRepository.searchByNameOrEmail(CustomerSearchPatterns.contains(query), afterId, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Optional<Customer> selectCustomerById(Integer id) {
         return customerRepository.findById(id);
     }
@@ -30,22 +73,80 @@ public class CustomerJpaDataAccessAndService implements CustomerDAO{
     }
 
     @Override
+    public void insertCustomers(List<Customer> customers) {
+        customerRepository.saveAll(customers);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return customerRepository.findEmailsIn(emails.toArray(String[]::new));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public boolean existsPersonWithEmail(String email) {
         return customerRepository.existsCustomerByEmail(email);
     }
 
+    // one statement, a customer deleted concurrently is just no row
     @Override
-    public void deleteCustomer(Integer customerId) {
-        customerRepository.deleteById(customerId);
+    @Transactional
+    public boolean deleteCustomer(Integer customerId) {
+        int result = customerRepository.deleteCustomerById(customerId);
+        evictAfterCompletion(customerId);
+        return result > 0;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public boolean existsCustomerWithId(Integer id) {
         return customerRepository.existsCustomerById(id);
     }
 
+    // one UPDATE statement instead of merging the whole entity
     @Override
-    public void updateCustomer(Customer customer) {
-        customerRepository.save(customer);
+    @Transactional
+    public boolean updateCustomer(Customer customer) {
+        int result = customerRepository.updateCustomer(
+                customer.getId(),
+                customer.getName(),
+                customer.getEmail(),
+                customer.getAge(),
+                customer.getVersion()
+        );
+        evictAfterCompletion(customer.getId());
+        // no row matched, only a second look tells a deleted customer from a stale version;
+        // existsById counts the row, the cached exists query could still see it
+        if (result == 0 && customer.getVersion() != null && customerRepository.existsById(customer.getId())) {
+            throw new OptimisticLockingFailureException("customer %s is no longer at version %s".formatted(customer.getId(), customer.getVersion()));
+        }
+        return result > 0;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long selectCollectionVersion() {
+        return customerRepository.findCollectionVersion();
+    }
+
+    // after commit, an eviction before it lets a concurrent read cache the old row again; the listener
+    // evicts the same entries on every node once the NOTIFY arrives
+    private void evictAfterCompletion(Integer id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                evict(id);
+            }
+        });
+    }
+
+    private void evict(Integer id) {
+        secondLevelCache.evict(Customer.class, id);
+        secondLevelCache.evictDefaultQueryRegion();
     }
 }
@@ -1,73 +1,192 @@
 package com.amigoscode.customer;
 
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Repository;
 
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 @Repository("list")
 public class CustomerListDataAccessAndService implements CustomerDAO{
 
-    private static List<Customer> customers;
-
-    static {
-        customers = new ArrayList<>();
-        Customer alex = new Customer(
-                1,
+    // primary key index, plus an ordered copy of the keys for keyset pagination
+    private final Map<Integer, Customer> customersById = new ConcurrentHashMap<>();
+    private final NavigableSet<Integer> orderedIds = new ConcurrentSkipListSet<>();
+    // unique secondary index, mirrors the customer_email_unique constraint
+    private final Map<String, Integer> idsByEmail = new ConcurrentHashMap<>();
+    private final CustomerSearchIndex searchIndex = new CustomerSearchIndex();
+    private final AtomicInteger idSequence = new AtomicInteger();
+    private final AtomicLong collectionVersion = new AtomicLong();
+
+    public CustomerListDataAccessAndService() {
+        insertCustomer(new Customer(
                 "Alex",
                 "alex@gmail.com",
                 23
-        );
-        Customer ally = new Customer(
-                2,
+        ));
+        insertCustomer(new Customer(
                 "Ally",
                 "ally@gmail.com",
                 21
-        );
-
-        customers.add(alex);
-        customers.add(ally);
+        ));
     }
 
 
     @Override
     public List<Customer> selectAllCustomers() {
-        return customers;
+        return orderedIds.stream()
+                .map(customersById::get)
+                .filter(Objects::nonNull)
+                // hand out copies, callers mutate what they get back
+                .map(Customer::new)
+                .toList();
+    }
+
+    @Override
+    public List<Customer> selectCustomersAfter(int afterId, int limit) {
+        return orderedIds.tailSet(afterId, false)
+                .stream()
+                .map(customersById::get)
+                .filter(Objects::nonNull)
+                .limit(limit)
+                .map(Customer::new)
+                .toList();
+    }
+
+    @Override
+    public List<Customer> selectCustomers(CustomerFilter filter, Set<CustomerField> fields, CustomerCursor after, int limit) {
+        Customer cursor = after == null ? null : after.position();
+        Comparator<Customer> order = filter.order();
+        return customersById.values()
+                .stream()
+                .filter(filter::matches)
+                .filter(customer -> cursor == null || order.compare(customer, cursor) > 0)
+                .sorted(order)
+                .limit(limit)
+                .map(customer -> CustomerField.project(customer, fields))
+                .toList();
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String query, int afterId, int limit) {
+        return searchIndex.candidatesAfter(query, afterId)
+                .map(customersById::get)
+                .filter(Objects::nonNull)
+                .filter(customer -> CustomerSearchIndex.matches(customer, query))
+                .limit(limit)
+                .map(Customer::new)
+                .toList();
     }
 
     @Override
     public Optional<Customer> selectCustomerById(Integer id) {
-        return customers.stream().filter(f -> f.getId().equals(id))
-                .findFirst();
+        return Optional.ofNullable(customersById.get(id))
+                .map(Customer::new);
     }
 
     @Override
     public void insertCustomer(Customer customer) {
-        customers.add(customer);
+        int id = idSequence.incrementAndGet();
+        if (idsByEmail.putIfAbsent(customer.getEmail(), id) != null) {
+            throw new DuplicateKeyException("email %s violates customer_email_unique".formatted(customer.getEmail()));
+        }
+
+        customersById.put(id, new Customer(
+                id,
+                customer.getName(),
+                customer.getEmail(),
+                customer.getAge(),
+                0
+        ));
+        orderedIds.add(id);
+        searchIndex.add(id, customer.getName(), customer.getEmail());
+        collectionVersion.incrementAndGet();
+    }
+
+    @Override
+    public void insertCustomers(List<Customer> customers) {
+        customers.forEach(this::insertCustomer);
+    }
+
+    @Override
+    public Set<String> selectExistingEmails(Collection<String> emails) {
+        return emails.stream()
+                .filter(idsByEmail::containsKey)
+                .collect(Collectors.toSet());
     }
 
     @Override
     public boolean existsPersonWithEmail(String email) {
-        return customers.stream()
-                .anyMatch(c -> c.getEmail().equals(email));
+        return idsByEmail.containsKey(email);
     }
 
     @Override
-    public void deleteCustomer(Integer customerId) {
-        customers.remove(customerId);
+    public boolean deleteCustomer(Integer customerId) {
+        Customer removed = customersById.remove(customerId);
+        if (removed == null) {
+            return false;
+        }
+        orderedIds.remove(customerId);
+        idsByEmail.remove(removed.getEmail(), customerId);
+        searchIndex.remove(customerId, removed.getName(), removed.getEmail());
+        collectionVersion.incrementAndGet();
+        return true;
     }
 
     @Override
     public boolean existsCustomerWithId(Integer id) {
-        return customers.stream()
-                .anyMatch(c -> c.getId().equals(id));
+        return customersById.containsKey(id);
     }
 
     @Override
-    public void updateCustomer(Customer customer) {
-        customers.add(customer);
+    public boolean updateCustomer(Customer update) {
+        Customer updated = customersById.computeIfPresent(update.getId(), (id, existing) -> {
+            if (update.getVersion() != null && !update.getVersion().equals(existing.getVersion())) {
+                throw new OptimisticLockingFailureException("customer %s is no longer at version %s".formatted(id, update.getVersion()));
+            }
+            Customer next = new Customer(
+                    id,
+                    update.getName() != null ? update.getName() : existing.getName(),
+                    update.getEmail() != null ? update.getEmail() : existing.getEmail(),
+                    update.getAge() != null ? update.getAge() : existing.getAge(),
+                    existing.getVersion() + 1
+            );
+
+            if (!next.getEmail().equals(existing.getEmail())) {
+                Integer owner = idsByEmail.putIfAbsent(next.getEmail(), id);
+                if (owner != null && !owner.equals(id)) {
+                    throw new DuplicateKeyException("email %s violates customer_email_unique".formatted(next.getEmail()));
+                }
+                idsByEmail.remove(existing.getEmail(), id);
+            }
+            if (!next.getName().equals(existing.getName()) || !next.getEmail().equals(existing.getEmail())) {
+                searchIndex.remove(id, existing.getName(), existing.getEmail());
+                searchIndex.add(id, next.getName(), next.getEmail());
+            }
+            return next;
+        });
+        if (updated == null) {
+            return false;
+        }
+        collectionVersion.incrementAndGet();
+        return true;
     }
 
+    @Override
+    public long selectCollectionVersion() {
+        return collectionVersion.get();
+    }
 
 }
@@ -0,0 +1,107 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.CustomerNotFoundException;
+import com.amigoscode.exception.DublicateResourceException;
+import com.amigoscode.exception.PreconditionFailedException;
+import com.amigoscode.exception.RequestValidationException;
+import com.amigoscode.exception.ResourceNotFoundException;
+import com.amigoscode.exception.UpdateConflictException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+class CustomerMetricsInterceptor implements MethodInterceptor {
+
+    enum Outcome {
+        OK("ok"),
+        NOT_FOUND("not_found"),
+        DUPLICATE("duplicate"),
+        INVALID("invalid"),
+        CONFLICT("conflict"),
+        ERROR("error");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final String timerName;
+    private final String componentTag;
+    private final String component;
+    // one timer per method and outcome, resolved once instead of a registry lookup per call
+    private final Map<Method, Timer[]> timers = new ConcurrentHashMap<>();
+
+    CustomerMetricsInterceptor(ObjectProvider<MeterRegistry> meterRegistry, String timerName, String componentTag, String component) {
+        this.meterRegistry = meterRegistry;
+        this.timerName = timerName;
+        this.componentTag = componentTag;
+        this.component = component;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (invocation.getMethod().getDeclaringClass() == Object.class) {
+            return invocation.proceed();
+        }
+
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            Object result = invocation.proceed();
+            // an empty lookup is a miss, not a failure
+            outcome = result instanceof Optional<?> optional && optional.isEmpty() ? Outcome.NOT_FOUND : Outcome.OK;
+            return result;
+        } catch (Throwable e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            timer(invocation.getMethod(), outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(Method method, Outcome outcome) {
+        Timer[] byOutcome = timers.computeIfAbsent(method, m -> new Timer[Outcome.values().length]);
+        Timer timer = byOutcome[outcome.ordinal()];
+        if (timer == null) {
+            // racing threads get the same meter back from the registry
+            timer = Timer.builder(timerName)
+                    .tag(componentTag, component)
+                    .tag("method", method.getName())
+                    .tag("outcome", outcome.tag)
+                    .register(meterRegistry.getObject());
+            byOutcome[outcome.ordinal()] = timer;
+        }
+        return timer;
+    }
+
+    private static Outcome outcomeOf(Throwable e) {
+        if (e instanceof ResourceNotFoundException || e instanceof CustomerNotFoundException) {
+            return Outcome.NOT_FOUND;
+        }
+        if (e instanceof DublicateResourceException || e instanceof DataIntegrityViolationException) {
+            return Outcome.DUPLICATE;
+        }
+        if (e instanceof RequestValidationException) {
+            return Outcome.INVALID;
+        }
+        if (e instanceof OptimisticLockingFailureException
+                || e instanceof PreconditionFailedException
+                || e instanceof UpdateConflictException) {
+            return Outcome.CONFLICT;
+        }
+        return Outcome.ERROR;
+    }
+}
@@ -0,0 +1,47 @@
+package com.amigoscode.customer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+// times every CustomerDAO bean (tagged with its qualifier) and the CustomerService
+@Component
+public class CustomerMetricsPostProcessor implements BeanPostProcessor {
+
+    static final String DAO_TIMER = "customer.dao";
+    static final String SERVICE_TIMER = "customer.service";
+
+    // looked up lazily, post processors are created before the registry
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public CustomerMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        CustomerMetricsInterceptor interceptor;
+        if (bean instanceof CustomerDAO) {
+            interceptor = new CustomerMetricsInterceptor(meterRegistry, DAO_TIMER, "dao", beanName);
+        } else if (bean instanceof CustomerService) {
+            interceptor = new CustomerMetricsInterceptor(meterRegistry, SERVICE_TIMER, "service", beanName);
+        } else {
+            return bean;
+        }
+
+        // already proxied, e.g. for @Transactional, put the timer outside the existing advice
+        if (bean instanceof Advised advised && !advised.isFrozen()) {
+            advised.addAdvice(0, interceptor);
+            return bean;
+        }
+
+        // class based, CustomerExportController injects the concrete JDBC DAO
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(interceptor);
+        return proxyFactory.getProxy(bean.getClass().getClassLoader());
+    }
+}
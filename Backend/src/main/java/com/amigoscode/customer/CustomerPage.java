@@ -0,0 +1,29 @@
+package com.amigoscode.customer;
+
+import java.util.List;
+import java.util.Set;
+
+// nextCursor is an opaque token for the after parameter, null on the last page
+public record CustomerPage(
+        List<Customer> customers,
+        String nextCursor
+) {
+
+    static CustomerPage of(List<Customer> rows, int pageSize) {
+        return of(rows, pageSize, CustomerSort.ID);
+    }
+
+    // rows holds up to pageSize + 1 customers, the extra one only tells us another page exists
+    static CustomerPage of(List<Customer> rows, int pageSize, CustomerSort sort) {
+        if (rows.size() <= pageSize){
+            return new CustomerPage(rows, null);
+        }
+
+        List<Customer> page = List.copyOf(rows.subList(0, pageSize));
+        return new CustomerPage(page, CustomerCursor.of(page.get(pageSize - 1), sort).encode());
+    }
+
+    CustomerPage project(Set<CustomerField> fields) {
+        return new CustomerPage(customers.stream().map(customer -> CustomerField.project(customer, fields)).toList(), nextCursor);
+    }
+}
@@ -0,0 +1,13 @@
+package com.amigoscode.customer;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Set;
+
+// repository fragment, the field set is only known per request so a static interface projection does not fit
+public interface CustomerProjectionRepository {
+
+    List<Customer> findProjected(Specification<Customer> specification, Sort sort, Set<CustomerField> fields, int limit);
+}
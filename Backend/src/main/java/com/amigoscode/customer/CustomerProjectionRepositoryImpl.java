@@ -0,0 +1,53 @@
+package com.amigoscode.customer;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.List;
+import java.util.Set;
+
+// a tuple query selects just the requested columns, the rows are never managed entities
+class CustomerProjectionRepositoryImpl implements CustomerProjectionRepository {
+
+    private final EntityManager entityManager;
+
+    CustomerProjectionRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Customer> findProjected(Specification<Customer> specification, Sort sort, Set<CustomerField> fields, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Customer> root = query.from(Customer.class);
+
+        List<Selection<?>> selections = fields.stream()
+                .<Selection<?>>map(field -> root.get(field.column()).alias(field.column()))
+                .toList();
+        query.multiselect(selections).orderBy(QueryUtils.toOrders(sort, root, cb));
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultStream()
+                .map(tuple -> {
+                    Customer customer = new Customer();
+                    for (CustomerField field : fields) {
+                        field.set(customer, tuple.get(field.column()));
+                    }
+                    return customer;
+                })
+                .toList();
+    }
+}
@@ -0,0 +1,187 @@
+package com.amigoscode.customer;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository("r2dbc")
+@Profile("reactive")
+public class CustomerR2dbcDataAccessAndService implements ReactiveCustomerDAO {
+
+    private final DatabaseClient databaseClient;
+
+    public CustomerR2dbcDataAccessAndService(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    // rows are pulled from the portal fetch-size rows at a time as the subscriber requests them
+    @Override
+    public Flux<Customer> streamAllCustomers() {
+        var sql = """
+                SELECT id,name,email,age,version
+                FROM customer
+                ORDER BY id
+                """;
+        return databaseClient.sql(sql)
+                .filter(statement -> statement.fetchSize(CustomerJDBCDataAccessAndService.EXPORT_FETCH_SIZE))
+                .map(CustomerR2dbcDataAccessAndService::mapRow)
+                .all();
+    }
+
+    @Override
+    public Flux<Customer> selectCustomersAfter(int afterId, int limit) {
+        var sql = """
+                SELECT id,name,email,age,version
+                FROM customer
+                WHERE id > :afterId
+                ORDER BY id
+                LIMIT :limit
+                """;
+        return databaseClient.sql(sql)
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(CustomerR2dbcDataAccessAndService::mapRow)
+                .all();
+    }
+
+    @Override
+    public Mono<Customer> selectCustomerById(Integer id) {
+        var sql = """
+                SELECT id,name,email,age,version
+                FROM customer
+                WHERE id = :id
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(CustomerR2dbcDataAccessAndService::mapRow)
+                .one();
+    }
+
+    // the id comes from the column default, a nextval is never inside another allocator's block
+    @Override
+    public Mono<Void> insertCustomer(Customer customer) {
+        var sql = """
+                INSERT INTO customer(name, email, age)
+                VALUES (:name, :email, :age)
+                """;
+        return databaseClient.sql(sql)
+                .bind("name", customer.getName())
+                .bind("email", customer.getEmail())
+                .bind("age", customer.getAge())
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Integer.class))
+                .one()
+                .doOnNext(customer::setId)
+                .then();
+    }
+
+    // one statement for the whole list, so a concurrent duplicate fails all of it
+    @Override
+    public Mono<Void> insertCustomers(List<Customer> customers) {
+        if (customers.isEmpty()){
+            return Mono.empty();
+        }
+        var sql = """
+                INSERT INTO customer(name, email, age)
+                SELECT * FROM unnest(:names, :emails, :ages)
+                """;
+        return databaseClient.sql(sql)
+                .bind("names", customers.stream().map(Customer::getName).toArray(String[]::new))
+                .bind("emails", customers.stream().map(Customer::getEmail).toArray(String[]::new))
+                .bind("ages", customers.stream().map(Customer::getAge).toArray(Integer[]::new))
+                .then();
+    }
+
+    @Override
+    public Flux<String> selectExistingEmails(Collection<String> emails) {
+        var sql = """
+                SELECT email
+                FROM customer
+                WHERE email = ANY (:emails)
+                """;
+        return databaseClient.sql(sql)
+                .bind("emails", emails.toArray(String[]::new))
+                .map(row -> row.get("email", String.class))
+                .all();
+    }
+
+    @Override
+    public Mono<Boolean> existsPersonWithEmail(String email) {
+        var sql = """
+                SELECT EXISTS (SELECT 1 FROM customer WHERE email = :email)
+                """;
+        return databaseClient.sql(sql)
+                .bind("email", email)
+                .map(row -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    @Override
+    public Mono<Boolean> deleteCustomer(Integer customerId) {
+        var sql = """
+                DELETE
+                FROM customer
+                WHERE id = :id
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", customerId)
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows > 0);
+    }
+
+    @Override
+    public Mono<Boolean> existsCustomerWithId(Integer id) {
+        var sql = """
+                SELECT EXISTS (SELECT 1 FROM customer WHERE id = :id)
+                """;
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(row -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    // null fields keep their current value, one statement whichever columns changed
+    @Override
+    public Mono<Boolean> updateCustomer(Customer update) {
+        var sql = """
+                UPDATE customer
+                SET name = COALESCE(:name, name),
+                    email = COALESCE(:email, email),
+                    age = COALESCE(:age, age),
+                    version = version + 1
+                WHERE id = :id
+                AND (:version IS NULL OR version = :version)
+                """;
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql).bind("id", update.getId());
+        spec = update.getName() != null ? spec.bind("name", update.getName()) : spec.bindNull("name", String.class);
+        spec = update.getEmail() != null ? spec.bind("email", update.getEmail()) : spec.bindNull("email", String.class);
+        spec = update.getAge() != null ? spec.bind("age", update.getAge()) : spec.bindNull("age", Integer.class);
+        spec = update.getVersion() != null ? spec.bind("version", update.getVersion()) : spec.bindNull("version", Integer.class);
+        return spec.fetch()
+                .rowsUpdated()
+                .flatMap(rows -> rows == 0 && update.getVersion() != null
+                        ? existsCustomerWithId(update.getId()).flatMap(exists -> exists
+                                ? Mono.error(new OptimisticLockingFailureException(
+                                        "customer %s is no longer at version %s".formatted(update.getId(), update.getVersion())))
+                                : Mono.just(false))
+                        : Mono.just(rows > 0));
+    }
+
+    private static Customer mapRow(Readable row) {
+        return new Customer(
+                row.get("id", Integer.class),
+                row.get("name", String.class),
+                row.get("email", String.class),
+                row.get("age", Integer.class),
+                row.get("version", Integer.class)
+        );
+    }
+}
@@ -0,0 +1,13 @@
+package com.amigoscode.customer;
+
+public record CustomerRegistrationResult(
+        int index,
+        String email,
+        Status status
+) {
+
+    public enum Status {
+        REGISTERED,
+        DUPLICATE
+    }
+}
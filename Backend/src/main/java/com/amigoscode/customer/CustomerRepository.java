@@ -1,11 +1,89 @@
 package com.amigoscode.customer;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Set;
 
 //@Repository
-public interface CustomerRepository extends JpaRepository<Customer, Integer> {
+public interface CustomerRepository extends JpaRepository<Customer, Integer>,
+        JpaSpecificationExecutor<Customer>,
+        CustomerProjectionRepository {
 
+    // answered from the query cache until the next write to customer
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     boolean existsCustomerByEmail(String email);
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     boolean existsCustomerById(Integer id);
+    List<Customer> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    // native, JPQL has no ILIKE and the trigram indexes only serve ILIKE/LIKE
+    @Query(value = """
+            SELECT id, name, email, age, version, email_domain
+            FROM customer
+            WHERE (name ILIKE :pattern OR email ILIKE :pattern)
+            AND id > :afterId
+            ORDER BY id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Customer> searchByNameOrEmail(@Param("pattern") String pattern,
+                                       @Param("afterId") int afterId,
+                                       @Param("limit") int limit);
+
+    // one array parameter like the JDBC DAO, an IN list binds a placeholder per email and every batch size is new SQL
+    @Query(value = "SELECT email FROM customer WHERE email = ANY(CAST(:emails AS text[]))", nativeQuery = true)
+    Set<String> findEmailsIn(@Param("emails") String[] emails);
+
+    // the writes are native and synchronize on a space no entity maps to: a JPQL or unscoped native statement
+    // clears the whole customer region, the DAO evicts just the written customer instead
+    String WRITE_SPACE = "customer_write";
+
+    // a bulk delete, deleteById would load the entity before removing it
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = WRITE_SPACE))
+    @Query(value = "DELETE FROM customer WHERE id = :id", nativeQuery = true)
+    int deleteCustomerById(@Param("id") Integer id);
+
+    // null arguments keep the current value, a null version skips the version check
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = WRITE_SPACE))
+    @Query(value = """
+            UPDATE customer
+            SET name = COALESCE(CAST(:name AS text), name),
+                email = COALESCE(CAST(:email AS text), email),
+                age = COALESCE(CAST(:age AS integer), age),
+                version = version + 1
+            WHERE id = :id
+            AND (CAST(:version AS integer) IS NULL OR version = CAST(:version AS integer))
+            """, nativeQuery = true)
+    int updateCustomer(@Param("id") Integer id,
+                       @Param("name") String name,
+                       @Param("email") String email,
+                       @Param("age") Integer age,
+                       @Param("version") Integer version);
+
+    // the same watermark as the JDBC DAO, see V8
+    @Query(value = """
+            SELECT CAST(CAST(greatest(
+                (SELECT xid FROM customer_change
+                 WHERE xid < pg_snapshot_xmin(pg_current_snapshot())
+                 ORDER BY xid DESC
+                 LIMIT 1),
+                pruned_xid
+            ) AS text) AS bigint)
+            FROM customer_change_retention
+            """, nativeQuery = true)
+    long findCollectionVersion();
 }
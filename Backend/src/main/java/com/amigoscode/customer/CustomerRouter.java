@@ -0,0 +1,29 @@
+package com.amigoscode.customer;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+// same routes as CustomerController and CustomerExportController, served on netty
+@Configuration
+@Profile("reactive")
+public class CustomerRouter {
+
+    @Bean
+    public RouterFunction<ServerResponse> customerRoutes(CustomerHandler customerHandler) {
+        return route()
+                .path("/api/v1/customers", builder -> builder
+                        .GET("", customerHandler::getCustomers)
+                        .GET("/export", customerHandler::exportCustomers)
+                        .GET("/{customerId}", customerHandler::getCustomer)
+                        .POST("", customerHandler::registerCustomer)
+                        .POST("/bulk", customerHandler::registerCustomers)
+                        .DELETE("/{customerId}", customerHandler::deleteCustomer)
+                        .PUT("/{customerId}", customerHandler::updateCustomer))
+                .build();
+    }
+}
@@ -0,0 +1,5 @@
+package com.amigoscode.customer;
+
+// a customer as read for exports, primitives instead of the entity's boxed fields
+public record CustomerRow(int id, String name, String email, int age) {
+}
@@ -3,19 +3,84 @@ package com.amigoscode.customer;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
 
+import java.lang.ref.WeakReference;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Set;
 
 @Component
 public class CustomerRowMapper implements RowMapper<Customer> {
 
+    // column positions of the result set the thread is reading, looking a label up on every row is what the
+    // driver is slowest at; per thread so concurrent queries don't evict each other, and the reference is weak
+    // so a finished result set and its rows are not kept alive by this singleton
+    private final ThreadLocal<Columns> columns = new ThreadLocal<>();
+
     @Override
     public Customer mapRow(ResultSet rs, int rowNum) throws SQLException {
+        Columns columns = columnsOf(rs);
         return new Customer(
-                rs.getInt("id"),
-                rs.getString("name"),
-                rs.getString("email"),
-                rs.getInt("age")
+                rs.getInt(columns.id),
+                rs.getString(columns.name),
+                rs.getString(columns.email),
+                rs.getInt(columns.age),
+                rs.getInt(columns.version)
+        );
+    }
+
+    // no boxing and no entity, for scans that only pass the rows on
+    public CustomerRow mapCustomerRow(ResultSet rs) throws SQLException {
+        Columns columns = columnsOf(rs);
+        return new CustomerRow(
+                rs.getInt(columns.id),
+                rs.getString(columns.name),
+                rs.getString(columns.email),
+                rs.getInt(columns.age)
         );
     }
+
+    // for a SELECT that lists just these fields, in this order: each is read by its position, no label is looked up
+    public RowMapper<Customer> projection(Set<CustomerField> fields) {
+        CustomerField[] columns = fields.toArray(CustomerField[]::new);
+        return (rs, rowNum) -> {
+            Customer customer = new Customer();
+            for (int i = 0; i < columns.length; i++) {
+                switch (columns[i]) {
+                    case ID -> customer.setId(rs.getInt(i + 1));
+                    case NAME -> customer.setName(rs.getString(i + 1));
+                    case EMAIL -> customer.setEmail(rs.getString(i + 1));
+                    case AGE -> customer.setAge(rs.getInt(i + 1));
+                }
+            }
+            return customer;
+        };
+    }
+
+    private Columns columnsOf(ResultSet rs) throws SQLException {
+        Columns current = columns.get();
+        if (current == null || current.resultSet.get() != rs) {
+            current = new Columns(rs);
+            columns.set(current);
+        }
+        return current;
+    }
+
+    private static final class Columns {
+
+        private final WeakReference<ResultSet> resultSet;
+        private final int id;
+        private final int name;
+        private final int email;
+        private final int age;
+        private final int version;
+
+        private Columns(ResultSet rs) throws SQLException {
+            this.resultSet = new WeakReference<>(rs);
+            this.id = rs.findColumn("id");
+            this.name = rs.findColumn("name");
+            this.email = rs.findColumn("email");
+            this.age = rs.findColumn("age");
+            this.version = rs.findColumn("version");
+        }
+    }
 }
@@ -0,0 +1,96 @@
+package com.amigoscode.customer;
+
+import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// ids by every trigram of name and email, like the pg_trgm indexes: a query's trigrams narrow it down to
+// candidates, callers recheck them because the trigrams need not be adjacent in the customer
+class CustomerSearchIndex {
+
+    static final int GRAM_LENGTH = 3;
+
+    private final ConcurrentHashMap<String, Posting> idsByTrigram = new ConcurrentHashMap<>();
+
+    void add(Integer id, String name, String email) {
+        forEachTrigram(name, email, trigram -> idsByTrigram.compute(trigram, (key, posting) -> {
+            Posting next = posting == null ? new Posting() : posting;
+            if (next.ids.add(id)) {
+                next.size++;
+            }
+            return next;
+        }));
+    }
+
+    void remove(Integer id, String name, String email) {
+        forEachTrigram(name, email, trigram -> idsByTrigram.computeIfPresent(trigram, (key, posting) -> {
+            if (posting.ids.remove(id)) {
+                posting.size--;
+            }
+            return posting.size == 0 ? null : posting;
+        }));
+    }
+
+    // ascending ids after afterId, produced lazily so a page stops after its limit;
+    // the smallest posting list drives, the others are membership checks
+    Stream<Integer> candidatesAfter(String query, int afterId) {
+        String normalized = normalize(query);
+        if (normalized.length() < GRAM_LENGTH) {
+            throw new IllegalArgumentException("query must be at least %s characters".formatted(GRAM_LENGTH));
+        }
+        Set<String> trigrams = new HashSet<>();
+        addTrigrams(normalized, trigrams::add);
+        List<Posting> postings = new ArrayList<>(trigrams.size());
+        for (String trigram : trigrams) {
+            Posting posting = idsByTrigram.get(trigram);
+            if (posting == null) {
+                return Stream.empty();
+            }
+            postings.add(posting);
+        }
+        postings.sort(Comparator.comparingInt(posting -> posting.size));
+        List<Posting> others = postings.subList(1, postings.size());
+        return postings.get(0).ids
+                .tailSet(afterId, false)
+                .stream()
+                .filter(id -> others.stream().allMatch(posting -> posting.ids.contains(id)));
+    }
+
+    static boolean matches(Customer customer, String query) {
+        String normalized = normalize(query);
+        return normalize(customer.getName()).contains(normalized)
+                || normalize(customer.getEmail()).contains(normalized);
+    }
+
+    private static void forEachTrigram(String name, String email, Consumer<String> action) {
+        Set<String> trigrams = new HashSet<>();
+        addTrigrams(normalize(name), trigrams::add);
+        addTrigrams(normalize(email), trigrams::add);
+        trigrams.forEach(action);
+    }
+
+    private static void addTrigrams(String value, Consumer<String> action) {
+        for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+            action.accept(value.substring(i, i + GRAM_LENGTH));
+        }
+    }
+
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    // size is only written inside compute for its trigram; skip list sets count by walking every element
+    private static final class Posting {
+
+        private final NavigableSet<Integer> ids = new ConcurrentSkipListSet<>();
+        private volatile int size;
+    }
+}
@@ -0,0 +1,20 @@
+package com.amigoscode.customer;
+
+final class CustomerSearchPatterns {
+
+    private CustomerSearchPatterns() {
+    }
+
+    // the query is matched literally, LIKE wildcards typed by the caller are escaped
+    static String contains(String query) {
+        StringBuilder pattern = new StringBuilder(query.length() + 2).append('%');
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                pattern.append('\\');
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+}
@@ -0,0 +1,14 @@
+package com.amigoscode.customer;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+@ConfigurationProperties("customer.second-level-cache")
+public record CustomerSecondLevelCacheProperties(
+        @DefaultValue("10000") long maximumSize,
+        @DefaultValue("10000") long queryMaximumSize,
+        @DefaultValue("5m") Duration expireAfterWrite
+) {
+}
@@ -2,20 +2,48 @@ package com.amigoscode.customer;
 
 import com.amigoscode.exception.CustomerNotFoundException;
 import com.amigoscode.exception.DublicateResourceException;
+import com.amigoscode.exception.PreconditionFailedException;
 import com.amigoscode.exception.RequestValidationException;
 import com.amigoscode.exception.ResourceNotFoundException;
+import com.amigoscode.exception.UpdateConflictException;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class CustomerService {
 
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MAX_BULK_SIZE = 50_000;
+    // shorter terms share too many trigrams for the index to narrow anything down
+    static final int MIN_SEARCH_LENGTH = 3;
+
     private final CustomerDAO customerDAO ;
+    private final CustomerEmailFilter customerEmailFilter;
+    private final CustomerJDBCDataAccessAndService customerEmails;
 
-    public CustomerService(@Qualifier("jpa") CustomerDAO customerDAO) {
+    public CustomerService(@Qualifier("jpa-cached") CustomerDAO customerDAO,
+                           CustomerEmailFilter customerEmailFilter,
+                           CustomerJDBCDataAccessAndService customerEmails) {
         this.customerDAO = customerDAO;
+        this.customerEmailFilter = customerEmailFilter;
+        this.customerEmails = customerEmails;
+    }
+
+    // only the emails, streamed past the entity cache: filling the filter should not load every customer
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmEmailFilter(){
+        customerEmails.streamAllEmails(customerEmailFilter::put);
+        customerEmailFilter.markWarm();
     }
 
     public List<Customer> getAllCustomer(){
@@ -23,6 +51,52 @@ public class CustomerService {
         return customerDAO.selectAllCustomers();
     }
 
+    public CustomerPage getCustomers(String after, Integer limit){
+        return getCustomers(after, limit, CustomerFilter.NONE);
+    }
+
+    public CustomerPage getCustomers(String after, Integer limit, CustomerFilter filter){
+        return getCustomers(after, limit, filter, CustomerField.ALL);
+    }
+
+    public CustomerPage getCustomers(String after, Integer limit, CustomerFilter filter, Set<CustomerField> fields){
+        int pageSize = pageSize(limit);
+        CustomerCursor cursor = CustomerCursor.decode(after, filter.sort());
+
+        // fetch one extra row to know whether another page exists, the plain listing keeps its primary key scan
+        if (filter.equals(CustomerFilter.NONE) && fields.equals(CustomerField.ALL)){
+            return CustomerPage.of(customerDAO.selectCustomersAfter(cursor == null ? 0 : cursor.id(), pageSize + 1), pageSize);
+        }
+        // the cursor carries the last row's sort key, so it is read even when fields leaves it out
+        Set<CustomerField> read = CustomerField.with(fields, filter.sort().field());
+        CustomerPage page = CustomerPage.of(customerDAO.selectCustomers(filter, read, cursor, pageSize + 1), pageSize, filter.sort());
+        return read.equals(fields) ? page : page.project(fields);
+    }
+
+    public CustomerPage searchCustomers(String query, String after, Integer limit){
+        String term = query == null ? "" : query.strip();
+        if (term.length() < MIN_SEARCH_LENGTH){
+            throw new RequestValidationException("search query must be at least %s characters".formatted(MIN_SEARCH_LENGTH));
+        }
+        int pageSize = pageSize(limit);
+        CustomerCursor cursor = CustomerCursor.decode(after, CustomerSort.ID);
+
+        List<Customer> customers = customerDAO.searchCustomers(term, cursor == null ? 0 : cursor.id(), pageSize + 1);
+        return CustomerPage.of(customers, pageSize);
+    }
+
+    static int pageSize(Integer limit){
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE){
+            throw new RequestValidationException("limit must be between 1 and %s".formatted(MAX_PAGE_SIZE));
+        }
+        return pageSize;
+    }
+
+    public long getCollectionVersion(){
+        return customerDAO.selectCollectionVersion();
+    }
+
     public Customer getCustomer(Integer id){
         return customerDAO.selectCustomerById(id)
                 .orElseThrow(
@@ -34,7 +108,7 @@ public class CustomerService {
     public void addCustomer(CustomerRegistrationRequest customerRegistrationRequest){
 
         // check if email exist
-        if(customerDAO.existsPersonWithEmail(customerRegistrationRequest.email())){
+        if(emailTaken(customerRegistrationRequest.email())){
             throw new DublicateResourceException("EMail already taken");
         }
 
@@ -45,40 +119,93 @@ public class CustomerService {
                 customerRegistrationRequest.age()
         );
 
-        customerDAO.insertCustomer(customer);
+        try {
+            customerDAO.insertCustomer(customer);
+        } catch (DataIntegrityViolationException e) {
+            // customer_email_unique is the source of truth, the pre-check can race with other writers
+            throw new DublicateResourceException("EMail already taken");
+        }
+        customerEmailFilter.put(customer.getEmail());
+    }
+
+    public List<CustomerRegistrationResult> addCustomers(List<CustomerRegistrationRequest> requests){
+        if (requests.isEmpty() || requests.size() > MAX_BULK_SIZE){
+            throw new RequestValidationException("bulk registration takes between 1 and %s customers".formatted(MAX_BULK_SIZE));
+        }
+
+        // one set-based lookup for every email: the filter only knows what this node registered,
+        // a miss there is no proof when other instances register too
+        List<String> emails = requests.stream()
+                .map(CustomerRegistrationRequest::email)
+                .distinct()
+                .toList();
+        Set<String> taken = new HashSet<>(customerDAO.selectExistingEmails(emails));
+
+        List<Customer> customers = new ArrayList<>(requests.size());
+        List<CustomerRegistrationResult> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            CustomerRegistrationRequest request = requests.get(i);
+            // add() also catches the same email repeated inside the request
+            if (!taken.add(request.email())){
+                results.add(new CustomerRegistrationResult(i, request.email(), CustomerRegistrationResult.Status.DUPLICATE));
+                continue;
+            }
+            customers.add(new Customer(request.name(), request.email(), request.age()));
+            results.add(new CustomerRegistrationResult(i, request.email(), CustomerRegistrationResult.Status.REGISTERED));
+        }
+
+        if (!customers.isEmpty()){
+            try {
+                customerDAO.insertCustomers(customers);
+            } catch (DataIntegrityViolationException e) {
+                throw new DublicateResourceException("EMail already taken, another registration raced this request");
+            }
+            customers.forEach(customer -> customerEmailFilter.put(customer.getEmail()));
+        }
+        return results;
     }
 
     public void deleteCustomer(Integer customerId){
-        // check if email exist
-        if(customerDAO.existsCustomerWithId(customerId)) {
-            // delete customer
-            customerDAO.deleteCustomer(customerId);
-        }else {
+        // the delete itself tells us whether the customer existed
+        if(!customerDAO.deleteCustomer(customerId)) {
             throw new CustomerNotFoundException("Customer id %s not found".formatted(customerId));
         }
     }
 
     public void updateCustomer(Integer customerId, CustomerUpdateRequest customerUpdateRequest){
+        updateCustomer(customerId, customerUpdateRequest, null);
+    }
+
+    // the write only applies to the version that was read, so a concurrent update is never overwritten
+    public void updateCustomer(Integer customerId, CustomerUpdateRequest customerUpdateRequest, Integer expectedVersion){
 
         Customer customer = getCustomer(customerId);
 
+        // If-Match is not checked against this copy, it may come from a cache that lags behind: the expected
+        // version goes into the versioned UPDATE and its row count decides. the request is only diffed
+        // against a copy at that version, any other copy says nothing about what the row holds now
+        boolean diff = expectedVersion == null || expectedVersion.equals(customer.getVersion());
+
+        // only the fields that differ are set, the DAOs write just those columns
+        Customer update = new Customer(customerId, null, null, null, expectedVersion != null ? expectedVersion : customer.getVersion());
         boolean changes = false;
 
-        if (customerUpdateRequest.name() != null && !customerUpdateRequest.name().equals(customer.getName())){
-            customer.setName(customerUpdateRequest.name());
+        if (customerUpdateRequest.name() != null && !(diff && customerUpdateRequest.name().equals(customer.getName()))){
+            update.setName(customerUpdateRequest.name());
             changes = true;
         }
 
-        if (customerUpdateRequest.email() != null && !customerUpdateRequest.email().equals(customer.getEmail())){
-            if (customerDAO.existsPersonWithEmail(customerUpdateRequest.email())){
+        if (customerUpdateRequest.email() != null && !(diff && customerUpdateRequest.email().equals(customer.getEmail()))){
+            // without a diff the email may be the customer's own, the unique constraint still catches a taken one
+            if (diff && emailTaken(customerUpdateRequest.email())){
                 throw new DublicateResourceException("Email already taken");
             }
-            customer.setEmail(customerUpdateRequest.email());
+            update.setEmail(customerUpdateRequest.email());
             changes = true;
         }
 
-        if (customerUpdateRequest.age() != null && !customerUpdateRequest.age().equals(customer.getAge())){
-            customer.setAge(customerUpdateRequest.age());
+        if (customerUpdateRequest.age() != null && !(diff && customerUpdateRequest.age().equals(customer.getAge()))){
+            update.setAge(customerUpdateRequest.age());
             changes = true;
         }
 
@@ -86,7 +213,29 @@ public class CustomerService {
             throw new RequestValidationException("No data changes found");
         }
 
-        customerDAO.updateCustomer(customer);
+        // a version mismatch is a 412 with If-Match and a 409 without, no row at all is a 404
+        boolean updated;
+        try {
+            updated = customerDAO.updateCustomer(update);
+        } catch (DataIntegrityViolationException e) {
+            throw new DublicateResourceException("Email already taken");
+        } catch (OptimisticLockingFailureException e) {
+            if (expectedVersion != null){
+                throw new PreconditionFailedException("customer %s is not at version %s".formatted(customerId, expectedVersion));
+            }
+            throw new UpdateConflictException("customer %s was changed by another request".formatted(customerId));
+        }
+        if (!updated){
+            throw new ResourceNotFoundException("customer with id %s is not found".formatted(customerId));
+        }
+        if (update.getEmail() != null){
+            customerEmailFilter.put(update.getEmail());
+        }
+    }
+
+    private boolean emailTaken(String email){
+        // only a possible hit in the filter is worth a database round trip
+        return customerEmailFilter.mightContain(email) && customerDAO.existsPersonWithEmail(email);
     }
 
 }
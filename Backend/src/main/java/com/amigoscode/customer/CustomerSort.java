@@ -0,0 +1,31 @@
+package com.amigoscode.customer;
+
+import java.util.Comparator;
+
+public enum CustomerSort {
+    ID(CustomerField.ID, Comparator.comparing(Customer::getId)),
+    NAME(CustomerField.NAME, Comparator.comparing(Customer::getName).thenComparing(Customer::getId)),
+    AGE(CustomerField.AGE, Comparator.comparing(Customer::getAge).thenComparing(Customer::getId));
+
+    // the field sorted on, its column and entity attribute share the name
+    private final CustomerField field;
+    // ties are broken by id, the same as the SQL ORDER BY
+    private final Comparator<Customer> order;
+
+    CustomerSort(CustomerField field, Comparator<Customer> order) {
+        this.field = field;
+        this.order = order;
+    }
+
+    CustomerField field() {
+        return field;
+    }
+
+    String column() {
+        return field.column();
+    }
+
+    Comparator<Customer> order() {
+        return order;
+    }
+}
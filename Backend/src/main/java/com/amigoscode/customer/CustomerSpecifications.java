@@ -0,0 +1,70 @@
+package com.amigoscode.customer;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class CustomerSpecifications {
+
+    private CustomerSpecifications() {
+    }
+
+    static Specification<Customer> matching(CustomerFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>(3);
+            if (filter.minAge() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("age"), filter.minAge()));
+            }
+            if (filter.maxAge() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("age"), filter.maxAge()));
+            }
+            if (filter.emailDomain() != null) {
+                predicates.add(cb.equal(root.get("emailDomain"), filter.emailDomain()));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    // keyset condition past the cursor in (sort key, id) order
+    static Specification<Customer> after(CustomerFilter filter, CustomerCursor cursor) {
+        return (root, query, cb) -> switch (filter.sort()) {
+            case ID -> beyond(cb, root.get("id"), cursor.id(), filter.descending());
+            case NAME -> after(cb, root, root.get("name"), (String) cursor.key(), cursor.id(), filter.descending());
+            case AGE -> after(cb, root, root.get("age"), (Integer) cursor.key(), cursor.id(), filter.descending());
+        };
+    }
+
+    static Sort sort(CustomerFilter filter) {
+        Sort.Direction direction = filter.descending() ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort byId = Sort.by(direction, "id");
+        return filter.sort() == CustomerSort.ID ? byId : Sort.by(direction, filter.sort().column()).and(byId);
+    }
+
+    // key >= k bounds the index range, the OR only skips the rows tied with the cursor
+    private static <T extends Comparable<? super T>> Predicate after(CriteriaBuilder cb,
+                                                                     Root<Customer> root,
+                                                                     Path<T> key,
+                                                                     T value,
+                                                                     Integer id,
+                                                                     boolean descending) {
+        Predicate bound = descending ? cb.lessThanOrEqualTo(key, value) : cb.greaterThanOrEqualTo(key, value);
+        Predicate pastTies = cb.or(
+                beyond(cb, key, value, descending),
+                beyond(cb, root.get("id"), id, descending)
+        );
+        return cb.and(bound, pastTies);
+    }
+
+    private static <T extends Comparable<? super T>> Predicate beyond(CriteriaBuilder cb,
+                                                                      Path<T> key,
+                                                                      T value,
+                                                                      boolean descending) {
+        return descending ? cb.lessThan(key, value) : cb.greaterThan(key, value);
+    }
+}
@@ -0,0 +1,24 @@
+package com.amigoscode.customer;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+
+public interface ReactiveCustomerDAO {
+
+    Flux<Customer> streamAllCustomers();
+    Flux<Customer> selectCustomersAfter(int afterId, int limit);
+    Mono<Customer> selectCustomerById(Integer id);
+    Mono<Void> insertCustomer(Customer customer);
+    Mono<Void> insertCustomers(List<Customer> customers);
+    Flux<String> selectExistingEmails(Collection<String> emails);
+    Mono<Boolean> existsPersonWithEmail(String email);
+    Mono<Boolean> deleteCustomer(Integer customerId);
+
+    Mono<Boolean> existsCustomerWithId(Integer id);
+
+    Mono<Boolean> updateCustomer(Customer update);
+}
@@ -0,0 +1,176 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.CustomerNotFoundException;
+import com.amigoscode.exception.DublicateResourceException;
+import com.amigoscode.exception.PreconditionFailedException;
+import com.amigoscode.exception.RequestValidationException;
+import com.amigoscode.exception.ResourceNotFoundException;
+import com.amigoscode.exception.UpdateConflictException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Service
+@Profile("reactive")
+public class ReactiveCustomerService {
+
+    private final ReactiveCustomerDAO customerDAO;
+    private final CustomerEmailFilter customerEmailFilter;
+
+    public ReactiveCustomerService(ReactiveCustomerDAO customerDAO, CustomerEmailFilter customerEmailFilter) {
+        this.customerDAO = customerDAO;
+        this.customerEmailFilter = customerEmailFilter;
+    }
+
+    public Flux<Customer> streamCustomers(){
+        return customerDAO.streamAllCustomers();
+    }
+
+    public Mono<CustomerPage> getCustomers(String after, Integer limit){
+        // fetch one extra row to know whether another page exists
+        return Mono.fromCallable(() -> CustomerService.pageSize(limit))
+                .flatMap(pageSize -> customerDAO.selectCustomersAfter(afterId(after), pageSize + 1)
+                        .collectList()
+                        .map(customers -> CustomerPage.of(customers, pageSize)));
+    }
+
+    private static int afterId(String after){
+        CustomerCursor cursor = CustomerCursor.decode(after, CustomerSort.ID);
+        return cursor == null ? 0 : cursor.id();
+    }
+
+    public Mono<Customer> getCustomer(Integer id){
+        return customerDAO.selectCustomerById(id)
+                .switchIfEmpty(Mono.error(
+                        () -> new ResourceNotFoundException("customer with id %s is not found".formatted(id))
+                ));
+    }
+
+    public Mono<Void> addCustomer(CustomerRegistrationRequest customerRegistrationRequest){
+        Customer customer = new Customer(
+                customerRegistrationRequest.name(),
+                customerRegistrationRequest.email(),
+                customerRegistrationRequest.age()
+        );
+
+        return emailTaken(customer.getEmail())
+                .flatMap(taken -> taken
+                        ? Mono.error(new DublicateResourceException("EMail already taken"))
+                        : customerDAO.insertCustomer(customer))
+                // customer_email_unique is the source of truth, the pre-check can race with other writers
+                .onErrorMap(DataIntegrityViolationException.class, e -> new DublicateResourceException("EMail already taken"))
+                .doOnSuccess(ignored -> customerEmailFilter.put(customer.getEmail()));
+    }
+
+    public Mono<List<CustomerRegistrationResult>> addCustomers(List<CustomerRegistrationRequest> requests){
+        if (requests.isEmpty() || requests.size() > CustomerService.MAX_BULK_SIZE){
+            return Mono.error(new RequestValidationException(
+                    "bulk registration takes between 1 and %s customers".formatted(CustomerService.MAX_BULK_SIZE)
+            ));
+        }
+
+        // one set-based lookup for every email: the filter only knows what this node registered,
+        // a miss there is no proof when other instances register too
+        List<String> emails = requests.stream()
+                .map(CustomerRegistrationRequest::email)
+                .distinct()
+                .toList();
+        Mono<Set<String>> existing = customerDAO.selectExistingEmails(emails).collect(HashSet::new, Set::add);
+
+        return existing.flatMap(taken -> {
+            List<Customer> customers = new ArrayList<>(requests.size());
+            List<CustomerRegistrationResult> results = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                CustomerRegistrationRequest request = requests.get(i);
+                // add() also catches the same email repeated inside the request
+                if (!taken.add(request.email())){
+                    results.add(new CustomerRegistrationResult(i, request.email(), CustomerRegistrationResult.Status.DUPLICATE));
+                    continue;
+                }
+                customers.add(new Customer(request.name(), request.email(), request.age()));
+                results.add(new CustomerRegistrationResult(i, request.email(), CustomerRegistrationResult.Status.REGISTERED));
+            }
+
+            return customerDAO.insertCustomers(customers)
+                    .onErrorMap(DataIntegrityViolationException.class,
+                            e -> new DublicateResourceException("EMail already taken, another registration raced this request"))
+                    .then(Mono.fromRunnable(() -> customers.forEach(customer -> customerEmailFilter.put(customer.getEmail()))))
+                    .thenReturn(results);
+        });
+    }
+
+    public Mono<Void> deleteCustomer(Integer customerId){
+        return customerDAO.deleteCustomer(customerId)
+                .flatMap(deleted -> deleted
+                        ? Mono.<Void>empty()
+                        : Mono.error(new CustomerNotFoundException("Customer id %s not found".formatted(customerId))));
+    }
+
+    public Mono<Void> updateCustomer(Integer customerId, CustomerUpdateRequest customerUpdateRequest){
+        return updateCustomer(customerId, customerUpdateRequest, null);
+    }
+
+    public Mono<Void> updateCustomer(Integer customerId, CustomerUpdateRequest customerUpdateRequest, Integer expectedVersion){
+        return getCustomer(customerId).flatMap(customer -> {
+            // the expected version goes into the versioned UPDATE, see CustomerService.updateCustomer
+            boolean diff = expectedVersion == null || expectedVersion.equals(customer.getVersion());
+
+            // only the fields that differ are set, the DAO writes just those columns
+            Customer update = new Customer(customerId, null, null, null, expectedVersion != null ? expectedVersion : customer.getVersion());
+            boolean changes = false;
+
+            if (customerUpdateRequest.name() != null && !(diff && customerUpdateRequest.name().equals(customer.getName()))){
+                update.setName(customerUpdateRequest.name());
+                changes = true;
+            }
+
+            boolean emailChanged = customerUpdateRequest.email() != null && !(diff && customerUpdateRequest.email().equals(customer.getEmail()));
+            if (emailChanged){
+                update.setEmail(customerUpdateRequest.email());
+                changes = true;
+            }
+
+            if (customerUpdateRequest.age() != null && !(diff && customerUpdateRequest.age().equals(customer.getAge()))){
+                update.setAge(customerUpdateRequest.age());
+                changes = true;
+            }
+
+            if (!changes){
+                return Mono.error(new RequestValidationException("No data changes found"));
+            }
+
+            Mono<Boolean> taken = emailChanged && diff ? emailTaken(update.getEmail()) : Mono.just(false);
+            return taken.flatMap(t -> t
+                            ? Mono.error(new DublicateResourceException("Email already taken"))
+                            : customerDAO.updateCustomer(update))
+                    .onErrorMap(DataIntegrityViolationException.class, e -> new DublicateResourceException("Email already taken"))
+                    .onErrorMap(OptimisticLockingFailureException.class, e -> expectedVersion != null
+                            ? new PreconditionFailedException("customer %s is not at version %s".formatted(customerId, expectedVersion))
+                            : new UpdateConflictException("customer %s was changed by another request".formatted(customerId)))
+                    .flatMap(updated -> updated
+                            ? Mono.<Void>empty()
+                            : Mono.error(new ResourceNotFoundException("customer with id %s is not found".formatted(customerId))))
+                    .doOnSuccess(ignored -> {
+                        if (emailChanged){
+                            customerEmailFilter.put(update.getEmail());
+                        }
+                    });
+        });
+    }
+
+    private Mono<Boolean> emailTaken(String email){
+        // only a possible hit in the filter is worth a database round trip
+        return customerEmailFilter.mightContain(email)
+                ? customerDAO.existsPersonWithEmail(email)
+                : Mono.just(false);
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.amigoscode.datasource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// off by default, the prod profile turns it on; without it hikari keeps its own defaults
+@Configuration
+@ConditionalOnProperty(prefix = "customer.datasource.pool", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ConnectionPoolProperties.class)
+public class ConnectionPoolConfig {
+
+    // static, a post processor must not wait for its configuration class
+    @Bean
+    public static ConnectionPoolPostProcessor connectionPoolPostProcessor(ObjectProvider<ConnectionPoolProperties> properties) {
+        return new ConnectionPoolPostProcessor(properties, Runtime.getRuntime().availableProcessors());
+    }
+}
@@ -0,0 +1,37 @@
+package com.amigoscode.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+// sizes every hikari pool from ConnectionPoolProperties, after spring.datasource.hikari.* is bound
+// and before the pool opens its first connection
+public class ConnectionPoolPostProcessor implements BeanPostProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionPoolPostProcessor.class);
+
+    // looked up lazily, post processors are created before configuration properties are bound
+    private final ObjectProvider<ConnectionPoolProperties> properties;
+    private final int availableProcessors;
+
+    public ConnectionPoolPostProcessor(ObjectProvider<ConnectionPoolProperties> properties, int availableProcessors) {
+        this.properties = properties;
+        this.availableProcessors = availableProcessors;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof HikariDataSource dataSource)) {
+            return bean;
+        }
+        ConnectionPoolProperties pool = properties.getObject();
+        int maximumPoolSize = pool.maximumPoolSize(availableProcessors);
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        dataSource.setMinimumIdle(pool.minimumIdle(maximumPoolSize));
+        dataSource.setConnectionTimeout(pool.connectionTimeout().toMillis());
+        log.info("pool {} sized to {} connections, {} idle", beanName, maximumPoolSize, dataSource.getMinimumIdle());
+        return bean;
+    }
+}
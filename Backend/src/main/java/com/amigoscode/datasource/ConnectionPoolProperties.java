@@ -0,0 +1,66 @@
+package com.amigoscode.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// pool size is (cores * connectionsPerCore) + effectiveSpindleCount, cores being the database server's;
+// maximumSize replaces the formula, minimumIdle defaults to the maximum for a fixed size pool
+@ConfigurationProperties("customer.datasource.pool")
+public record ConnectionPoolProperties(
+        Integer cores,
+        @DefaultValue("2") int connectionsPerCore,
+        @DefaultValue("1") int effectiveSpindleCount,
+        Integer maximumSize,
+        Integer minimumIdle,
+        @DefaultValue("30s") Duration connectionTimeout
+) {
+
+    // hikari refuses a connection timeout below 250ms
+    static final Duration MIN_CONNECTION_TIMEOUT = Duration.ofMillis(250);
+    // flyway holds one connection for its lock and migrates on another, one connection never starts
+    static final int MIN_POOL_SIZE = 2;
+
+    public ConnectionPoolProperties {
+        if (cores != null && cores < 1) {
+            throw new IllegalArgumentException("cores must be at least 1, was %s".formatted(cores));
+        }
+        if (connectionsPerCore < 1) {
+            throw new IllegalArgumentException("connections-per-core must be at least 1, was %s".formatted(connectionsPerCore));
+        }
+        if (effectiveSpindleCount < 0) {
+            throw new IllegalArgumentException("effective-spindle-count must not be negative, was %s".formatted(effectiveSpindleCount));
+        }
+        if (maximumSize != null && maximumSize < MIN_POOL_SIZE) {
+            throw new IllegalArgumentException("maximum-size must be at least %s, was %s".formatted(MIN_POOL_SIZE, maximumSize));
+        }
+        if (minimumIdle != null && minimumIdle < 0) {
+            throw new IllegalArgumentException("minimum-idle must not be negative, was %s".formatted(minimumIdle));
+        }
+        if (connectionTimeout.compareTo(MIN_CONNECTION_TIMEOUT) < 0) {
+            throw new IllegalArgumentException("connection-timeout must be at least %s, was %s".formatted(MIN_CONNECTION_TIMEOUT, connectionTimeout));
+        }
+    }
+
+    int maximumPoolSize(int availableProcessors) {
+        if (maximumSize != null) {
+            return maximumSize;
+        }
+        int size = (cores != null ? cores : availableProcessors) * connectionsPerCore + effectiveSpindleCount;
+        if (size < MIN_POOL_SIZE) {
+            throw new IllegalArgumentException("pool size %s is below %s, raise connections-per-core or effective-spindle-count".formatted(size, MIN_POOL_SIZE));
+        }
+        return size;
+    }
+
+    int minimumIdle(int maximumPoolSize) {
+        if (minimumIdle == null) {
+            return maximumPoolSize;
+        }
+        if (minimumIdle > maximumPoolSize) {
+            throw new IllegalArgumentException("minimum-idle %s is above the pool size %s".formatted(minimumIdle, maximumPoolSize));
+        }
+        return minimumIdle;
+    }
+}
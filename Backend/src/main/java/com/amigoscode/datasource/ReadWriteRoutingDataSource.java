@@ -0,0 +1,33 @@
+package com.amigoscode.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// read-only transactions go to the replica, everything else to the primary; only correct behind a
+// LazyConnectionDataSourceProxy, the transaction managers take a connection before they mark it read-only
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Route determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            // no cheap way to tell a write from a read outside a read-only transaction, assume it wrote
+            ReadYourWrites.wrote();
+            return Route.PRIMARY;
+        }
+        return ReadYourWrites.pinnedToPrimary() ? Route.PRIMARY : Route.REPLICA;
+    }
+}
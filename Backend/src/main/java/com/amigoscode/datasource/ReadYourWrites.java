@@ -0,0 +1,68 @@
+package com.amigoscode.datasource;
+
+import java.util.function.Supplier;
+
+// per thread state telling ReadWriteRoutingDataSource to keep reads on the primary,
+// either because this request wrote, the client wrote a moment ago, or the caller asked for it
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<State> STATE = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    // runs read on the primary, for callers that must not see replica lag, e.g. filling a cache
+    public static <T> T onPrimary(Supplier<T> read) {
+        State previous = STATE.get();
+        STATE.set(new State(true, previous == null ? null : previous.onFirstWrite));
+        try {
+            return read.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    static void begin(boolean pinned, Runnable onFirstWrite) {
+        STATE.set(new State(pinned, onFirstWrite));
+    }
+
+    static void end() {
+        STATE.remove();
+    }
+
+    static boolean pinnedToPrimary() {
+        State state = STATE.get();
+        return state != null && state.pinned;
+    }
+
+    // the first write of a request pins the rest of it, the replica may not have it yet
+    static void wrote() {
+        State state = STATE.get();
+        if (state == null || state.pinned) {
+            return;
+        }
+        state.pinned = true;
+        if (state.onFirstWrite != null) {
+            state.onFirstWrite.run();
+        }
+    }
+
+    private static void restore(State previous) {
+        if (previous == null) {
+            STATE.remove();
+        } else {
+            STATE.set(previous);
+        }
+    }
+
+    private static final class State {
+
+        private boolean pinned;
+        private final Runnable onFirstWrite;
+
+        private State(boolean pinned, Runnable onFirstWrite) {
+            this.pinned = pinned;
+            this.onFirstWrite = onFirstWrite;
+        }
+    }
+}
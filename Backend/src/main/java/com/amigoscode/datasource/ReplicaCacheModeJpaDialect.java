@@ -0,0 +1,59 @@
+package com.amigoscode.datasource;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.sql.SQLException;
+
+// transactions routed to the replica read the second-level cache but never fill it, a row the
+// replica has not caught up on would otherwise become the cached copy primary reads get back
+public class ReplicaCacheModeJpaDialect extends HibernateJpaDialect {
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        // the same decision ReadWriteRoutingDataSource makes once the first statement needs a connection
+        if (!definition.isReadOnly() || ReadYourWrites.pinnedToPrimary()) {
+            return transactionData;
+        }
+        Session session = entityManager.unwrap(Session.class);
+        ReplicaTransactionData replica = new ReplicaTransactionData(
+                session,
+                session.getCacheMode(),
+                session.getProperties().getOrDefault(SpecHints.HINT_SPEC_CACHE_STORE_MODE, CacheStoreMode.USE),
+                transactionData
+        );
+        // find() goes by the store mode and keeps reading the cache; queries go by the session's cache
+        // mode and skip the caches entirely, with GET a query cache miss still stores its result.
+        // in this order, setting the store mode resets the session's cache mode
+        session.setProperty(SpecHints.HINT_SPEC_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+        session.setCacheMode(CacheMode.IGNORE);
+        return replica;
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (!(transactionData instanceof ReplicaTransactionData replica)) {
+            super.cleanupTransaction(transactionData);
+            return;
+        }
+        if (replica.session().isOpen()) {
+            replica.session().setProperty(SpecHints.HINT_SPEC_CACHE_STORE_MODE, replica.previousStoreMode());
+            replica.session().setCacheMode(replica.previousCacheMode());
+        }
+        super.cleanupTransaction(replica.transactionData());
+    }
+
+    private record ReplicaTransactionData(Session session,
+                                          CacheMode previousCacheMode,
+                                          Object previousStoreMode,
+                                          Object transactionData) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.amigoscode.datasource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+// JpaTransactionManager takes its dialect from the entity manager factory, so it is set there
+// before the factory initializes rather than on the transaction manager
+public class ReplicaCacheModePostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof AbstractEntityManagerFactoryBean entityManagerFactory) {
+            entityManagerFactory.setJpaDialect(new ReplicaCacheModeJpaDialect());
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,12 @@
+package com.amigoscode.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.GONE)
+public class ChangesPrunedException extends RuntimeException {
+
+    public ChangesPrunedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.amigoscode.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.CONFLICT)
+public class UpdateConflictException extends RuntimeException {
+
+    public UpdateConflictException(String message) {
+        super(message);
+    }
+}
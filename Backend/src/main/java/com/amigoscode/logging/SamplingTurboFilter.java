@@ -0,0 +1,46 @@
+package com.amigoscode.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// lets one in sampleRate events of a noisy logger through, decided before logback builds the event
+public class SamplingTurboFilter extends TurboFilter {
+
+    private final AtomicLong seen = new AtomicLong();
+    private String loggerName;
+    private int sampleRate = 1;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // isDebugEnabled() style checks arrive without a format, only count real log calls
+        if (format == null || level.isGreaterOrEqual(Level.WARN) || !logger.getName().equals(loggerName)) {
+            return FilterReply.NEUTRAL;
+        }
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.DENY;
+        }
+        return seen.getAndIncrement() % sampleRate == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    public void setLoggerName(String loggerName) {
+        this.loggerName = loggerName;
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public void start() {
+        if (loggerName == null || sampleRate < 1) {
+            addError("SamplingTurboFilter needs a loggerName and a sampleRate of at least 1");
+            return;
+        }
+        super.start();
+    }
+}
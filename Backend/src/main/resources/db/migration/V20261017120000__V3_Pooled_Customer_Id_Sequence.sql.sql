@@ -0,0 +1,2 @@
+ALTER SEQUENCE customer_id_seq
+INCREMENT BY 50;
\ No newline at end of file
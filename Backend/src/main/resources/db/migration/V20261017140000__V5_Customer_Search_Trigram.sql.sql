@@ -0,0 +1,5 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- trigram indexes answer ILIKE '%term%' on name and email without a sequential scan
+CREATE INDEX customer_name_trgm_idx ON customer USING GIN (name gin_trgm_ops);
+CREATE INDEX customer_email_trgm_idx ON customer USING GIN (email gin_trgm_ops);
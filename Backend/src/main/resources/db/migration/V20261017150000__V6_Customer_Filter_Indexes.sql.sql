@@ -0,0 +1,8 @@
+-- derived from email so the domain filter is an equality on an indexed column
+ALTER TABLE customer
+ADD COLUMN email_domain TEXT GENERATED ALWAYS AS (lower(split_part(email, '@', 2))) STORED;
+
+-- each leads with the filtered or sorted column and ends with id, the keyset tiebreaker
+CREATE INDEX customer_age_id_idx ON customer (age, id);
+CREATE INDEX customer_name_id_idx ON customer (name, id);
+CREATE INDEX customer_email_domain_id_idx ON customer (email_domain, id);
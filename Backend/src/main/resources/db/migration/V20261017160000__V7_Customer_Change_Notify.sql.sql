@@ -0,0 +1,24 @@
+-- every node LISTENs on customer_changed to drop what it cached: the payload is the id of an updated
+-- or deleted row, '+' after an insert (only cached query results can be stale) and '*' after a truncate
+CREATE FUNCTION notify_customer_changed() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        PERFORM pg_notify('customer_changed', '+');
+    ELSIF TG_OP = 'TRUNCATE' THEN
+        PERFORM pg_notify('customer_changed', '*');
+    ELSE
+        PERFORM pg_notify('customer_changed', OLD.id::text);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- notifications go out on commit, a rolled back write sends nothing
+CREATE TRIGGER customer_changed_row
+AFTER UPDATE OR DELETE ON customer
+FOR EACH ROW EXECUTE FUNCTION notify_customer_changed();
+
+-- once per statement, a bulk insert sends one notification instead of one per row
+CREATE TRIGGER customer_changed_statement
+AFTER INSERT OR TRUNCATE ON customer
+FOR EACH STATEMENT EXECUTE FUNCTION notify_customer_changed();
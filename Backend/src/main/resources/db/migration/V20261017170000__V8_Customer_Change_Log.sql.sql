@@ -0,0 +1,75 @@
+-- append only, one row per inserted, updated or deleted customer, written by the same statement
+-- so a change is logged exactly when it commits; deletes only carry the id.
+-- every change records its transaction and readers only return rows below the oldest running
+-- transaction, ordered by (xid, seq): nothing can commit in front of what has been returned
+CREATE TABLE customer_change(
+   seq BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+   customer_id BIGINT NOT NULL,
+   operation TEXT NOT NULL CHECK (operation IN ('INSERT', 'UPDATE', 'DELETE')),
+   name TEXT,
+   email TEXT,
+   age INT,
+   version INT,
+   changed_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+   xid xid8 NOT NULL DEFAULT pg_current_xact_id()
+);
+
+CREATE INDEX customer_change_changed_at_idx ON customer_change (changed_at);
+
+CREATE INDEX customer_change_xid_seq_idx ON customer_change (xid, seq);
+
+-- one row, every seq at or below it may have been pruned; pruned_xid is its position, cursors at it
+-- continue from there. the list ETag is the newest xid in customer_change below the oldest running
+-- transaction, or pruned_xid: it only moves once a change commits and nothing older can commit after it
+CREATE TABLE customer_change_retention(
+   id BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (id),
+   pruned_through BIGINT NOT NULL,
+   pruned_xid xid8 NOT NULL DEFAULT '0'
+);
+
+INSERT INTO customer_change_retention(pruned_through) VALUES (0);
+
+CREATE FUNCTION record_customer_change() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        INSERT INTO customer_change(customer_id, operation)
+        SELECT id, TG_OP FROM old_rows ORDER BY id;
+    ELSE
+        INSERT INTO customer_change(customer_id, operation, name, email, age, version)
+        SELECT id, TG_OP, name, email, age, version FROM new_rows ORDER BY id;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- once per statement over its transition table, a trigger with one can only have one event
+CREATE TRIGGER customer_change_insert
+AFTER INSERT ON customer
+REFERENCING NEW TABLE AS new_rows
+FOR EACH STATEMENT EXECUTE FUNCTION record_customer_change();
+
+CREATE TRIGGER customer_change_update
+AFTER UPDATE ON customer
+REFERENCING NEW TABLE AS new_rows
+FOR EACH STATEMENT EXECUTE FUNCTION record_customer_change();
+
+CREATE TRIGGER customer_change_delete
+AFTER DELETE ON customer
+REFERENCING OLD TABLE AS old_rows
+FOR EACH STATEMENT EXECUTE FUNCTION record_customer_change();
+
+-- a truncate cannot be logged row by row: the log is emptied and the truncating transaction becomes
+-- the watermark, consumers of the change feed start over
+CREATE FUNCTION forget_customer_changes() RETURNS trigger AS $$
+BEGIN
+    UPDATE customer_change_retention
+    SET pruned_xid = pg_current_xact_id(),
+        pruned_through = greatest(pruned_through, coalesce((SELECT max(seq) FROM customer_change), 0));
+    DELETE FROM customer_change;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER customer_change_truncate
+AFTER TRUNCATE ON customer
+FOR EACH STATEMENT EXECUTE FUNCTION forget_customer_changes();
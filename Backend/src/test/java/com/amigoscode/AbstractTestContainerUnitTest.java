@@ -1,10 +1,13 @@
 package com.amigoscode;
 
 import com.github.javafaker.Faker;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
 import org.flywaydb.core.Flyway;
 import org.junit.jupiter.api.BeforeAll;
 import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.PostgreSQLContainer;
@@ -73,4 +76,17 @@ public abstract class AbstractTestContainerUnitTest {
     protected static JdbcTemplate getJdbcTemplate() {
         return new JdbcTemplate(getDataSource());
     }
+
+    protected static DatabaseClient getDatabaseClient() {
+        return DatabaseClient.create(ConnectionFactories.get(
+                ConnectionFactoryOptions.builder()
+                        .option(ConnectionFactoryOptions.DRIVER, "postgresql")
+                        .option(ConnectionFactoryOptions.HOST, postgreSQLContainer.getHost())
+                        .option(ConnectionFactoryOptions.PORT, postgreSQLContainer.getMappedPort(PostgreSQLContainer.POSTGRESQL_PORT))
+                        .option(ConnectionFactoryOptions.DATABASE, postgreSQLContainer.getDatabaseName())
+                        .option(ConnectionFactoryOptions.USER, postgreSQLContainer.getUsername())
+                        .option(ConnectionFactoryOptions.PASSWORD, postgreSQLContainer.getPassword())
+                        .build()
+        ));
+    }
 }
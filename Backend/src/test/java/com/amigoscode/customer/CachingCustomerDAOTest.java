@@ -0,0 +1,208 @@
+package com.amigoscode.customer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingCustomerDAOTest {
+
+    @Mock
+    private CustomerDAO customerDAO;
+    private MeterRegistry meterRegistry;
+    private CachingCustomerDAO underTest;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new CachingCustomerDAO(
+                customerDAO,
+                "jpa",
+                new CustomerCacheProperties(100, Duration.ofMinutes(5)),
+                meterRegistry
+        );
+    }
+
+    @Test
+    void selectCustomerByIdIsReadThrough() {
+        // Given
+        int id = 1;
+        Customer customer = new Customer(id, "Alex", "alex@gmail.com", 19);
+        when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
+
+        // When
+        Optional<Customer> first = underTest.selectCustomerById(id);
+        Optional<Customer> second = underTest.selectCustomerById(id);
+
+        // Then
+        assertThat(first).hasValue(customer);
+        assertThat(second).hasValue(customer);
+        verify(customerDAO, times(1)).selectCustomerById(id);
+        assertThat(underTest.stats().hitCount()).isEqualTo(1);
+        assertThat(underTest.stats().missCount()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").tag("dao", "jpa").functionCounter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void missingCustomersAreNotCached() {
+        // Given
+        int id = 1;
+        when(customerDAO.selectCustomerById(id)).thenReturn(Optional.empty());
+
+        // When
+        underTest.selectCustomerById(id);
+        underTest.selectCustomerById(id);
+
+        // Then
+        verify(customerDAO, times(2)).selectCustomerById(id);
+    }
+
+    @Test
+    void mutatingAReturnedCustomerDoesNotChangeTheCache() {
+        // Given
+        int id = 1;
+        when(customerDAO.selectCustomerById(id))
+                .thenReturn(Optional.of(new Customer(id, "Alex", "alex@gmail.com", 19)));
+
+        // When
+        underTest.selectCustomerById(id).orElseThrow().setName("foo");
+
+        // Then
+        assertThat(underTest.selectCustomerById(id))
+                .hasValueSatisfying(c -> assertThat(c.getName()).isEqualTo("Alex"));
+    }
+
+    @Test
+    void updateCustomerInvalidates() {
+        // Given
+        int id = 1;
+        Customer customer = new Customer(id, "Alex", "alex@gmail.com", 19);
+        Customer updated = new Customer(id, "Alexandro", "alex@gmail.com", 19);
+        when(customerDAO.selectCustomerById(id))
+                .thenReturn(Optional.of(customer))
+                .thenReturn(Optional.of(updated));
+        underTest.selectCustomerById(id);
+
+        // When
+        underTest.updateCustomer(updated);
+
+        // Then
+        verify(customerDAO).updateCustomer(updated);
+        assertThat(underTest.selectCustomerById(id)).hasValue(updated);
+    }
+
+    @Test
+    void loadRacingAnUpdateIsNotCached() {
+        // Given
+        int id = 1;
+        Customer customer = new Customer(id, "Alex", "alex@gmail.com", 19);
+        Customer updated = new Customer(id, "Alexandro", "alex@gmail.com", 19);
+        when(customerDAO.selectCustomerById(id))
+                .thenAnswer(invocation -> {
+                    // another request updates while this one is still loading
+                    underTest.updateCustomer(updated);
+                    return Optional.of(customer);
+                })
+                .thenReturn(Optional.of(updated));
+
+        // When
+        underTest.selectCustomerById(id);
+
+        // Then
+        assertThat(underTest.selectCustomerById(id)).hasValue(updated);
+        verify(customerDAO, times(2)).selectCustomerById(id);
+    }
+
+    @Test
+    void loadRacingAnEvictAllIsNotCached() {
+        // Given
+        int id = 1;
+        Customer customer = new Customer(id, "Alex", "alex@gmail.com", 19);
+        Customer updated = new Customer(id, "Alexandro", "alex@gmail.com", 19);
+        when(customerDAO.selectCustomerById(id))
+                .thenAnswer(invocation -> {
+                    // another node's write is announced while this one is still loading
+                    underTest.evictAll();
+                    return Optional.of(customer);
+                })
+                .thenReturn(Optional.of(updated));
+
+        // When
+        underTest.selectCustomerById(id);
+
+        // Then
+        assertThat(underTest.selectCustomerById(id)).hasValue(updated);
+        verify(customerDAO, times(2)).selectCustomerById(id);
+    }
+
+    @Test
+    void deleteCustomerInvalidates() {
+        // Given
+        int id = 1;
+        when(customerDAO.selectCustomerById(id))
+                .thenReturn(Optional.of(new Customer(id, "Alex", "alex@gmail.com", 19)))
+                .thenReturn(Optional.empty());
+        underTest.selectCustomerById(id);
+
+        // When
+        underTest.deleteCustomer(id);
+
+        // Then
+        verify(customerDAO).deleteCustomer(id);
+        assertThat(underTest.selectCustomerById(id)).isEmpty();
+    }
+
+    @Test
+    void existsCustomerWithIdIsAnsweredFromTheCache() {
+        // Given
+        int id = 1;
+        when(customerDAO.selectCustomerById(id))
+                .thenReturn(Optional.of(new Customer(id, "Alex", "alex@gmail.com", 19)));
+        underTest.selectCustomerById(id);
+
+        // When
+        boolean actual = underTest.existsCustomerWithId(id);
+
+        // Then
+        assertThat(actual).isTrue();
+        verify(customerDAO, never()).existsCustomerWithId(id);
+    }
+
+    @Test
+    void evictsBeyondMaximumSize() throws InterruptedException {
+        // Given
+        underTest = new CachingCustomerDAO(
+                customerDAO,
+                "jdbc",
+                new CustomerCacheProperties(1, Duration.ofMinutes(5)),
+                meterRegistry
+        );
+        when(customerDAO.selectCustomerById(anyInt()))
+                .thenAnswer(invocation -> {
+                    Integer id = invocation.getArgument(0);
+                    return Optional.of(new Customer(id, "Alex", id + "@gmail.com", 19));
+                });
+
+        // When
+        for (int id = 1; id <= 50; id++) {
+            underTest.selectCustomerById(id);
+        }
+
+        // Then eviction runs asynchronously, give it a moment
+        for (int attempt = 0; attempt < 50 && underTest.stats().evictionCount() == 0; attempt++) {
+            Thread.sleep(20);
+        }
+        assertThat(underTest.stats().evictionCount()).isPositive();
+    }
+}
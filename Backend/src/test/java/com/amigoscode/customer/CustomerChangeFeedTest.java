@@ -0,0 +1,218 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.ChangesPrunedException;
+import com.amigoscode.exception.RequestValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerChangeFeedTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-17T12:00:00Z");
+
+    @Mock
+    private CustomerChangeLog changeLog;
+    // wake-ups run when the test says so, not on the thread that published the event
+    private final Queue<Runnable> wakeUps = new ArrayDeque<>();
+    private CustomerChangeFeed underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerChangeFeed(
+                changeLog,
+                new CustomerChangeFeedProperties(Duration.ofSeconds(30), Duration.ofSeconds(60), Duration.ofDays(7)),
+                Clock.fixed(NOW, ZoneOffset.UTC),
+                wakeUps::add
+        );
+        lenient().when(changeLog.isKeptCursor(anyLong())).thenReturn(true);
+    }
+
+    @Test
+    void changesAfterTheCursorAreReturnedAtOnce() {
+        // Given
+        CustomerChange change = change(11);
+        when(changeLog.selectChangesAfter(10, CustomerService.DEFAULT_PAGE_SIZE)).thenReturn(List.of(change));
+
+        // When
+        DeferredResult<CustomerChangePage> actual = underTest.getChanges(10L, null, null);
+
+        // Then
+        assertThat(actual.getResult()).isEqualTo(new CustomerChangePage(List.of(change), 11));
+        assertThat(underTest.waiting()).isZero();
+    }
+
+    @Test
+    void noWaitReturnsAnEmptyPageWithTheSameCursor() {
+        // Given
+        when(changeLog.selectChangesAfter(10, 5)).thenReturn(List.of());
+
+        // When
+        DeferredResult<CustomerChangePage> actual = underTest.getChanges(10L, 5, 0);
+
+        // Then
+        assertThat(actual.getResult()).isEqualTo(new CustomerChangePage(List.of(), 10));
+    }
+
+    @Test
+    void anEmptyFeedWaitsForANotification() {
+        // Given
+        CustomerChange change = change(11);
+        when(changeLog.selectChangesAfter(10, 5)).thenReturn(List.of());
+        when(changeLog.selectChangesAfterEach(Set.of(10L), 5)).thenReturn(Map.of(10L, List.of(change)));
+
+        // When
+        DeferredResult<CustomerChangePage> actual = underTest.getChanges(10L, 5, 30);
+
+        // Then
+        assertThat(actual.hasResult()).isFalse();
+        assertThat(underTest.waiting()).isOne();
+
+        underTest.onCustomerChanged(new CustomerChangedEvent(List.of("11")));
+
+        assertThat(actual.hasResult()).isFalse();
+        runWakeUps();
+        assertThat(actual.getResult()).isEqualTo(new CustomerChangePage(List.of(change), 11));
+    }
+
+    @Test
+    void oneQueryWakesEveryWaiter() {
+        // Given
+        CustomerChange eleven = change(11);
+        CustomerChange twelve = change(12);
+        when(changeLog.selectChangesAfter(anyLong(), anyInt())).thenReturn(List.of());
+        when(changeLog.selectChangesAfterEach(Set.of(10L, 11L), 5))
+                .thenReturn(Map.of(10L, List.of(eleven, twelve), 11L, List.of(twelve)));
+        DeferredResult<CustomerChangePage> first = underTest.getChanges(10L, 1, 30);
+        DeferredResult<CustomerChangePage> second = underTest.getChanges(10L, 5, 30);
+        DeferredResult<CustomerChangePage> third = underTest.getChanges(11L, 5, 30);
+
+        // When
+        underTest.onCustomerChanged(new CustomerChangedEvent(List.of("11")));
+        underTest.onCustomerChanged(new CustomerChangedEvent(List.of("12")));
+        runWakeUps();
+
+        // Then
+        assertThat(first.getResult()).isEqualTo(new CustomerChangePage(List.of(eleven), 11));
+        assertThat(second.getResult()).isEqualTo(new CustomerChangePage(List.of(eleven, twelve), 12));
+        assertThat(third.getResult()).isEqualTo(new CustomerChangePage(List.of(twelve), 12));
+        verify(changeLog, times(1)).selectChangesAfterEach(anyCollection(), anyInt());
+    }
+
+    @Test
+    void aWaiterWithNothingNewKeepsWaiting() {
+        // Given
+        when(changeLog.selectChangesAfter(10, 5)).thenReturn(List.of());
+        when(changeLog.selectChangesAfterEach(Set.of(10L), 5)).thenReturn(Map.of());
+        DeferredResult<CustomerChangePage> actual = underTest.getChanges(10L, 5, 30);
+
+        // When
+        underTest.onCustomerChanged(new CustomerChangedEvent(List.of("+")));
+        runWakeUps();
+
+        // Then
+        assertThat(actual.hasResult()).isFalse();
+        assertThat(underTest.waiting()).isOne();
+    }
+
+    @Test
+    void noWaitersNoWakeUp() {
+        // When
+        underTest.onCustomerChanged(new CustomerChangedEvent(List.of("11")));
+
+        // Then
+        assertThat(wakeUps).isEmpty();
+    }
+
+    @Test
+    void aChangeCommittedWhileRegisteringIsNotMissed() {
+        // Given
+        CustomerChange change = change(11);
+        when(changeLog.selectChangesAfter(10, 5))
+                .thenReturn(List.of())
+                .thenReturn(List.of(change));
+
+        // When
+        DeferredResult<CustomerChangePage> actual = underTest.getChanges(10L, 5, 30);
+
+        // Then
+        assertThat(actual.getResult()).isEqualTo(new CustomerChangePage(List.of(change), 11));
+    }
+
+    @Test
+    void aCursorBehindWhatWasPrunedIsGone() {
+        // Given
+        when(changeLog.isKeptCursor(99L)).thenReturn(false);
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getChanges(99L, null, null))
+                .isInstanceOf(ChangesPrunedException.class);
+        verify(changeLog, never()).selectChangesAfter(anyLong(), anyInt());
+    }
+
+    @Test
+    void waitIsCappedAtMaxWait() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getChanges(0L, null, 61))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("wait must be between 0 and 60 seconds");
+    }
+
+    @Test
+    void theCursorIsRequired() {
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.getChanges(null, null, null))
+                .isInstanceOf(RequestValidationException.class);
+    }
+
+    @Test
+    void latestIsAnEmptyPageAtTheNewestSeq() {
+        // Given
+        when(changeLog.selectLatestSeq()).thenReturn(42L);
+
+        // When
+        CustomerChangePage actual = underTest.getLatest();
+
+        // Then
+        assertThat(actual).isEqualTo(new CustomerChangePage(List.of(), 42));
+    }
+
+    @Test
+    void pruneDeletesChangesOlderThanTheRetention() {
+        // When
+        underTest.pruneChanges();
+
+        // Then
+        verify(changeLog).deleteChangesBefore(NOW.minus(Duration.ofDays(7)));
+    }
+
+    private void runWakeUps() {
+        for (Runnable wakeUp = wakeUps.poll(); wakeUp != null; wakeUp = wakeUps.poll()) {
+            wakeUp.run();
+        }
+    }
+
+    private static CustomerChange change(long seq) {
+        return new CustomerChange(seq, 1, CustomerChange.Operation.UPDATE, "Alex", "alex@gmail.com", 19, 1, NOW);
+    }
+}
@@ -0,0 +1,135 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.AbstractTestContainerUnitTest;
+import com.amigoscode.SpringBootExampleApplication;
+import com.amigoscode.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+// two instances of the application against one database, each with its own caches
+class CustomerChangeListenerTest extends AbstractTestContainerUnitTest {
+
+    private static final Duration PROPAGATION = Duration.ofSeconds(2);
+
+    private static ConfigurableApplicationContext first;
+    private static ConfigurableApplicationContext second;
+
+    @BeforeAll
+    static void startNodes() {
+        first = startNode();
+        second = startNode();
+        awaitListening();
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        first.close();
+        second.close();
+    }
+
+    @Test
+    void anUpdateOnOneNodeIsSeenByTheOther() {
+        // given
+        Integer id = insertCustomer();
+        assertThat(service(first).getCustomer(id).getName()).isEqualTo("Before");
+
+        // when
+        service(second).updateCustomer(id, new CustomerUpdateRequest("After", null, null));
+
+        // then
+        await().atMost(PROPAGATION)
+                .untilAsserted(() -> assertThat(service(first).getCustomer(id).getName()).isEqualTo("After"));
+    }
+
+    @Test
+    void aDeleteOnOneNodeIsSeenByTheOther() {
+        // given
+        Integer id = insertCustomer();
+        service(first).getCustomer(id);
+
+        // when
+        service(second).deleteCustomer(id);
+
+        // then
+        await().atMost(PROPAGATION)
+                .untilAsserted(() -> assertThatThrownBy(() -> service(first).getCustomer(id))
+                        .isInstanceOf(ResourceNotFoundException.class));
+    }
+
+    @Test
+    void aWriteFromOutsideTheApplicationIsSeenByBothNodes() {
+        // given
+        Integer id = insertCustomer();
+        service(first).getCustomer(id);
+        service(second).getCustomer(id);
+
+        // when
+        getJdbcTemplate().update("UPDATE customer SET age = 77 WHERE id = ?", id);
+
+        // then
+        await().atMost(PROPAGATION).untilAsserted(() -> {
+            assertThat(service(first).getCustomer(id).getAge()).isEqualTo(77);
+            assertThat(service(second).getCustomer(id).getAge()).isEqualTo(77);
+        });
+    }
+
+    @Test
+    void aLostConnectionIsReestablished() {
+        // given
+        Integer id = insertCustomer();
+        service(first).getCustomer(id);
+
+        // when
+        getJdbcTemplate().queryForList("""
+                SELECT pg_terminate_backend(pid) FROM pg_stat_activity
+                WHERE datname = current_database() AND query = 'LISTEN customer_changed'
+                """);
+        // most likely missed while reconnecting, the reconnect drops everything
+        service(second).updateCustomer(id, new CustomerUpdateRequest("Reconnected", null, null));
+
+        // then
+        await().atMost(PROPAGATION)
+                .untilAsserted(() -> assertThat(service(first).getCustomer(id).getName()).isEqualTo("Reconnected"));
+    }
+
+    private static ConfigurableApplicationContext startNode() {
+        // arguments, they take precedence over application.properties
+        return new SpringApplicationBuilder(SpringBootExampleApplication.class).run(
+                "--spring.main.web-application-type=none",
+                "--spring.datasource.url=" + postgreSQLContainer.getJdbcUrl(),
+                "--spring.datasource.username=" + postgreSQLContainer.getUsername(),
+                "--spring.datasource.password=" + postgreSQLContainer.getPassword(),
+                "--spring.jpa.show-sql=false",
+                "--customer.cache.invalidation.reconnect-delay=100ms"
+        );
+    }
+
+    private static void awaitListening() {
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> listener(first).isListening() && listener(second).isListening());
+    }
+
+    private static CustomerService service(ConfigurableApplicationContext node) {
+        return node.getBean(CustomerService.class);
+    }
+
+    private static CustomerChangeListener listener(ConfigurableApplicationContext node) {
+        return node.getBean(CustomerChangeListener.class);
+    }
+
+    private static Integer insertCustomer() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        service(first).addCustomer(new CustomerRegistrationRequest("Before", email, 30));
+        return getJdbcTemplate().queryForObject("SELECT id FROM customer WHERE email = ?", Integer.class, email);
+    }
+}
@@ -0,0 +1,258 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.AbstractTestContainerUnitTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerChangeLogTest extends AbstractTestContainerUnitTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private CustomerChangeLog underTest;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = getJdbcTemplate();
+        underTest = new CustomerChangeLog(jdbcTemplate);
+    }
+
+    @Test
+    void everyWriteIsLoggedInOrder() {
+        // given
+        long latest = underTest.selectLatestSeq();
+        String email = email();
+
+        // when
+        int id = insert(email);
+        jdbcTemplate.update("UPDATE customer SET age = 31, version = version + 1 WHERE id = ?", id);
+        jdbcTemplate.update("DELETE FROM customer WHERE id = ?", id);
+
+        // then
+        List<CustomerChange> changes = underTest.selectChangesAfter(latest, 10);
+        assertThat(changes).extracting(CustomerChange::operation).containsExactly(
+                CustomerChange.Operation.INSERT,
+                CustomerChange.Operation.UPDATE,
+                CustomerChange.Operation.DELETE
+        );
+        assertThat(changes).extracting(CustomerChange::customerId).containsOnly(id);
+        assertThat(changes.get(0).seq()).isLessThan(changes.get(1).seq());
+        assertThat(changes.get(1).seq()).isLessThan(changes.get(2).seq());
+        assertThat(changes.get(0).email()).isEqualTo(email);
+        assertThat(changes.get(0).age()).isEqualTo(30);
+        assertThat(changes.get(1).age()).isEqualTo(31);
+        assertThat(changes.get(1).version()).isEqualTo(1);
+        assertThat(changes.get(2).email()).isNull();
+        assertThat(changes.get(2).age()).isNull();
+        assertThat(underTest.selectLatestSeq()).isEqualTo(changes.get(2).seq());
+    }
+
+    @Test
+    void aMultiRowInsertLogsEveryRow() {
+        // given
+        long latest = underTest.selectLatestSeq();
+
+        // when
+        jdbcTemplate.update(
+                "INSERT INTO customer(name, email, age) VALUES ('a', ?, 20), ('b', ?, 21), ('c', ?, 22)",
+                email(), email(), email()
+        );
+
+        // then
+        assertThat(underTest.selectChangesAfter(latest, 10))
+                .extracting(CustomerChange::name)
+                .containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void aFailedWriteLogsNothing() {
+        // given
+        String email = email();
+        insert(email);
+        long latest = underTest.selectLatestSeq();
+
+        // when
+        assertThatThrownBy(() -> insert(email)).isInstanceOf(DuplicateKeyException.class);
+
+        // then
+        assertThat(underTest.selectChangesAfter(latest, 10)).isEmpty();
+    }
+
+    @Test
+    void selectChangesAfterPagesBySeq() {
+        // given
+        long latest = underTest.selectLatestSeq();
+        insert(email());
+        insert(email());
+        insert(email());
+
+        // when
+        List<CustomerChange> first = underTest.selectChangesAfter(latest, 2);
+        List<CustomerChange> second = underTest.selectChangesAfter(first.get(1).seq(), 2);
+
+        // then
+        assertThat(first).hasSize(2);
+        assertThat(second).hasSize(1);
+        assertThat(second.get(0).seq()).isGreaterThan(first.get(1).seq());
+    }
+
+    @Test
+    void selectChangesAfterEachAnswersEveryCursor() {
+        // given
+        long latest = underTest.selectLatestSeq();
+        insert(email());
+        long middle = underTest.selectLatestSeq();
+        insert(email());
+        long newest = underTest.selectLatestSeq();
+
+        // when
+        Map<Long, List<CustomerChange>> actual = underTest.selectChangesAfterEach(List.of(latest, middle, newest, -1L), 10);
+
+        // then
+        assertThat(actual.get(latest)).extracting(CustomerChange::seq).containsExactly(middle, newest);
+        assertThat(actual.get(middle)).extracting(CustomerChange::seq).containsExactly(newest);
+        assertThat(actual).doesNotContainKeys(newest, -1L);
+        assertThat(underTest.selectChangesAfterEach(List.of(latest), 1).get(latest))
+                .extracting(CustomerChange::seq)
+                .containsExactly(middle);
+    }
+
+    @Test
+    void aChangeIsHeldBackWhileAnOlderTransactionRuns() throws SQLException {
+        // given
+        long latest = underTest.selectLatestSeq();
+        List<CustomerChange> whileRunning;
+
+        try (Connection older = jdbcTemplate.getDataSource().getConnection()) {
+            older.setAutoCommit(false);
+            takeXid(older);
+
+            // when
+            insert(email());
+            whileRunning = underTest.selectChangesAfter(latest, 10);
+            older.commit();
+        }
+
+        // then
+        assertThat(whileRunning).isEmpty();
+        assertThat(underTest.selectChangesAfter(latest, 10)).hasSize(1);
+    }
+
+    @Test
+    void aLowerSeqCommittedLaterStillComesAfterTheCursor() throws SQLException {
+        // given
+        long latest = underTest.selectLatestSeq();
+        List<CustomerChange> first;
+
+        try (Connection older = jdbcTemplate.getDataSource().getConnection();
+             Connection newer = jdbcTemplate.getDataSource().getConnection()) {
+            older.setAutoCommit(false);
+            newer.setAutoCommit(false);
+            takeXid(older);
+            long lowerSeq = logChange(newer, 1);
+            long higherSeq = logChange(older, 2);
+            older.commit();
+            assertThat(lowerSeq).isLessThan(higherSeq);
+
+            // when
+            first = underTest.selectChangesAfter(latest, 10);
+            newer.commit();
+        }
+        List<CustomerChange> second = underTest.selectChangesAfter(CustomerChangePage.of(first, latest).nextCursor(), 10);
+
+        // then
+        assertThat(first).extracting(CustomerChange::customerId).containsExactly(2);
+        assertThat(second).extracting(CustomerChange::customerId).containsExactly(1);
+    }
+
+    @Test
+    void deleteChangesBeforeRecordsWhatItPruned() {
+        // given
+        insert(email());
+        long latest = underTest.selectLatestSeq();
+
+        // when
+        int deleted = underTest.deleteChangesBefore(Instant.now().plus(1, ChronoUnit.MINUTES));
+
+        // then
+        assertThat(deleted).isPositive();
+        assertThat(underTest.isKeptCursor(0)).isFalse();
+        assertThat(underTest.isKeptCursor(latest)).isTrue();
+        assertThat(underTest.selectChangesAfter(latest, 10)).isEmpty();
+        assertThat(underTest.selectLatestSeq()).isEqualTo(latest);
+    }
+
+    @Test
+    void aCursorAtThePrunedPositionContinues() {
+        // given
+        insert(email());
+        long latest = underTest.selectLatestSeq();
+        underTest.deleteChangesBefore(Instant.now().plus(1, ChronoUnit.MINUTES));
+
+        // when
+        insert(email());
+
+        // then
+        assertThat(underTest.selectChangesAfter(latest, 10)).hasSize(1);
+    }
+
+    @Test
+    void deleteChangesBeforeKeepsNewerChanges() {
+        // given
+        long latest = underTest.selectLatestSeq();
+        insert(email());
+
+        // when
+        int deleted = underTest.deleteChangesBefore(Instant.now().minus(1, ChronoUnit.DAYS));
+
+        // then
+        assertThat(deleted).isZero();
+        assertThat(underTest.isKeptCursor(latest)).isTrue();
+        assertThat(underTest.selectChangesAfter(latest, 10)).hasSize(1);
+    }
+
+    private int insert(String email) {
+        Integer id = jdbcTemplate.queryForObject(
+                "INSERT INTO customer(name, email, age) VALUES ('Alex', ?, 30) RETURNING id",
+                Integer.class,
+                email
+        );
+        return id == null ? 0 : id;
+    }
+
+    private static void takeXid(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SELECT pg_current_xact_id()");
+        }
+    }
+
+    // straight into the log, so the test picks which transaction takes the lower seq
+    private static long logChange(Connection connection, int customerId) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO customer_change(customer_id, operation) VALUES (?, 'DELETE') RETURNING seq")) {
+            statement.setInt(1, customerId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getLong(1);
+            }
+        }
+    }
+
+    private static String email() {
+        return FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+    }
+}
@@ -0,0 +1,69 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.RequestValidationException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerCursorTest {
+
+    @Test
+    void aCursorSurvivesTheRoundTrip() {
+        // Given
+        Customer customer = new Customer(7, "Alex: the second", "alex@gmail.com", 19);
+
+        // When
+        // Then
+        for (CustomerSort sort : CustomerSort.values()) {
+            CustomerCursor cursor = CustomerCursor.of(customer, sort);
+            assertThat(CustomerCursor.decode(cursor.encode(), sort)).isEqualTo(cursor);
+        }
+        assertThat(CustomerCursor.of(customer, CustomerSort.NAME).key()).isEqualTo("Alex: the second");
+        assertThat(CustomerCursor.of(customer, CustomerSort.AGE).key()).isEqualTo(19);
+    }
+
+    @Test
+    void noTokenIsTheFirstPage() {
+        // When
+        // Then
+        assertThat(CustomerCursor.decode(null, CustomerSort.NAME)).isNull();
+        assertThat(CustomerCursor.decode(" ", CustomerSort.NAME)).isNull();
+    }
+
+    @Test
+    void willThrowOnATokenFromAnotherOrder() {
+        // Given
+        String token = new CustomerCursor(CustomerSort.AGE, 19, 7).encode();
+
+        // When
+        // Then
+        assertThatThrownBy(() -> CustomerCursor.decode(token, CustomerSort.NAME))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("after %s is not a nextCursor of this listing".formatted(token));
+    }
+
+    @Test
+    void willThrowOnATokenThatIsNotACursor() {
+        // When
+        // Then
+        assertThatThrownBy(() -> CustomerCursor.decode("42", CustomerSort.ID))
+                .isInstanceOf(RequestValidationException.class);
+        assertThatThrownBy(() -> CustomerCursor.decode("not a cursor!", CustomerSort.ID))
+                .isInstanceOf(RequestValidationException.class);
+    }
+
+    @Test
+    void thePositionSortsLikeTheRowItCameFrom() {
+        // Given
+        Customer customer = new Customer(7, "Alex", "alex@gmail.com", 19);
+        Customer next = new Customer(8, "Alex", "alex2@gmail.com", 19);
+
+        // When
+        Customer actual = CustomerCursor.of(customer, CustomerSort.NAME).position();
+
+        // Then
+        assertThat(CustomerSort.NAME.order().compare(actual, customer)).isZero();
+        assertThat(CustomerSort.NAME.order().compare(next, actual)).isPositive();
+    }
+}
@@ -0,0 +1,32 @@
+package com.amigoscode.customer;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// ReadWriteRoutingDataSource sends anything not marked read-only to the primary and pins the request there
+class CustomerDAOReadOnlyTest {
+
+    @ParameterizedTest
+    @ValueSource(classes = {CustomerJDBCDataAccessAndService.class, CustomerJpaDataAccessAndService.class})
+    void everyReadIsAReadOnlyTransaction(Class<?> dao) {
+        // Given
+        Method[] reads = Arrays.stream(CustomerDAO.class.getMethods())
+                .filter(method -> method.getName().startsWith("select") || method.getName().startsWith("exists"))
+                .toArray(Method[]::new);
+
+        // When
+        // Then
+        assertThat(reads).isNotEmpty().allSatisfy(read -> {
+            Transactional transactional = dao.getMethod(read.getName(), read.getParameterTypes())
+                    .getAnnotation(Transactional.class);
+            assertThat(transactional).as(read.getName()).isNotNull();
+            assertThat(transactional.readOnly()).as(read.getName()).isTrue();
+        });
+    }
+}
@@ -0,0 +1,63 @@
+package com.amigoscode.customer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerEmailFilterTest {
+
+    @Test
+    void mightContainAnythingUntilWarm() {
+        // Given
+        CustomerEmailFilter underTest = new CustomerEmailFilter(1000, 0.01);
+
+        // When
+        boolean actual = underTest.mightContain("alex@gmail.com");
+
+        // Then
+        assertThat(actual).isTrue();
+    }
+
+    @Test
+    void neverReportsAStoredEmailAsAbsent() {
+        // Given
+        CustomerEmailFilter underTest = new CustomerEmailFilter(10_000, 0.01);
+        String[] emails = new String[10_000];
+        for (int i = 0; i < emails.length; i++) {
+            emails[i] = UUID.randomUUID() + "@gmail.com";
+            underTest.put(emails[i]);
+        }
+
+        // When
+        underTest.markWarm();
+
+        // Then
+        for (String email : emails) {
+            assertThat(underTest.mightContain(email)).isTrue();
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheConfiguredProbability() {
+        // Given
+        CustomerEmailFilter underTest = new CustomerEmailFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            underTest.put(UUID.randomUUID() + "@gmail.com");
+        }
+        underTest.markWarm();
+
+        // When
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (underTest.mightContain(UUID.randomUUID() + "@foobar.com")) {
+                falsePositives++;
+            }
+        }
+
+        // Then
+        assertThat((double) falsePositives / probes).isLessThan(0.02);
+    }
+}
@@ -0,0 +1,55 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.RequestValidationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerFieldTest {
+
+    @Test
+    void noFieldsSelectsEverything() {
+        // When
+        // Then
+        assertThat(CustomerField.parse(null)).isSameAs(CustomerField.ALL);
+        assertThat(CustomerField.parse(" ")).isSameAs(CustomerField.ALL);
+        assertThat(CustomerField.parse("name,email,age")).isSameAs(CustomerField.ALL);
+    }
+
+    @Test
+    void idIsAlwaysSelected() {
+        // When
+        Set<CustomerField> actual = CustomerField.parse(" Email , age");
+
+        // Then
+        assertThat(actual).containsExactly(CustomerField.ID, CustomerField.EMAIL, CustomerField.AGE);
+    }
+
+    @Test
+    void willThrowOnUnknownField() {
+        // When
+        // Then
+        assertThatThrownBy(() -> CustomerField.parse("email,password"))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("unknown field password, fields are id, name, email, age");
+    }
+
+    @Test
+    void projectCopiesOnlyTheSelectedFields() {
+        // Given
+        Customer customer = new Customer(1, "Alex", "alex@gmail.com", 19, 2);
+
+        // When
+        Customer actual = CustomerField.project(customer, CustomerField.parse("age"));
+
+        // Then
+        assertThat(actual.getId()).isEqualTo(1);
+        assertThat(actual.getAge()).isEqualTo(19);
+        assertThat(actual.getName()).isNull();
+        assertThat(actual.getEmail()).isNull();
+        assertThat(actual.getVersion()).isNull();
+    }
+}
@@ -0,0 +1,66 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.RequestValidationException;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerFilterTest {
+
+    @Test
+    void noParametersIsTheUnfilteredListing() {
+        // When
+        CustomerFilter actual = CustomerFilter.of(null, null, null, null, null);
+
+        // Then
+        assertThat(actual).isEqualTo(CustomerFilter.NONE);
+    }
+
+    @Test
+    void normalizesDomainSortAndDirection() {
+        // When
+        CustomerFilter actual = CustomerFilter.of(18, 30, " @Gmail.COM ", "Age", "DESC");
+
+        // Then
+        assertThat(actual).isEqualTo(new CustomerFilter(18, 30, "gmail.com", CustomerSort.AGE, true));
+    }
+
+    @Test
+    void willThrowWhenAgeRangeIsInverted() {
+        // When
+        // Then
+        assertThatThrownBy(() -> CustomerFilter.of(40, 30, null, null, null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("minAge 40 is greater than maxAge 30");
+    }
+
+    @Test
+    void willThrowOnUnknownSortOrDirection() {
+        // When
+        // Then
+        assertThatThrownBy(() -> CustomerFilter.of(null, null, null, "email", null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("sort must be one of id, name, age");
+        assertThatThrownBy(() -> CustomerFilter.of(null, null, null, null, "up"))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("direction must be asc or desc");
+    }
+
+    @Test
+    void matchesAndOrdersLikeTheDatabase() {
+        // Given
+        CustomerFilter filter = new CustomerFilter(20, 30, "gmail.com", CustomerSort.NAME, true);
+        Customer alex = new Customer(1, "Alex", "alex@GMAIL.com", 20);
+        Customer bob = new Customer(2, "Bob", "bob@gmail.com", 30);
+        Customer old = new Customer(3, "Old", "old@gmail.com", 31);
+        Customer yahoo = new Customer(4, "Yahoo", "yahoo@yahoo.com", 25);
+
+        // When
+        // Then
+        assertThat(filter.matches(alex)).isTrue();
+        assertThat(filter.matches(old)).isFalse();
+        assertThat(filter.matches(yahoo)).isFalse();
+        assertThat(filter.order().compare(bob, alex)).isNegative();
+    }
+}
@@ -0,0 +1,160 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerHandlerTest {
+
+    @Mock
+    private ReactiveCustomerService customerService;
+    private WebTestClient webTestClient;
+
+    @BeforeEach
+    void setUp() {
+        webTestClient = WebTestClient
+                .bindToRouterFunction(new CustomerRouter().customerRoutes(new CustomerHandler(customerService)))
+                .build();
+    }
+
+    @Test
+    void getCustomers() {
+        // Given
+        Customer alex = new Customer(1, "Alex", "alex@gmail.com", 19);
+        String after = CustomerCursor.ofId(0).encode();
+        String next = CustomerCursor.ofId(1).encode();
+        when(customerService.getCustomers(after, 1)).thenReturn(Mono.just(new CustomerPage(List.of(alex), next)));
+
+        // When
+        // Then
+        webTestClient.get()
+                .uri("/api/v1/customers?after={after}&limit=1", after)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.customers[0].email").isEqualTo("alex@gmail.com")
+                .jsonPath("$.nextCursor").isEqualTo(next);
+    }
+
+    @Test
+    void exportCustomersAsNdjson() {
+        // Given
+        when(customerService.streamCustomers()).thenReturn(Flux.just(
+                new Customer(1, "Alex", "alex@gmail.com", 19),
+                new Customer(2, "Ally", "ally@gmail.com", 21)
+        ));
+
+        // When
+        // Then
+        webTestClient.get()
+                .uri("/api/v1/customers/export")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Customer.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getCustomerSendsTheVersionAsETag() {
+        // Given
+        when(customerService.getCustomer(1)).thenReturn(Mono.just(new Customer(1, "Alex", "alex@gmail.com", 19, 3)));
+
+        // When
+        // Then
+        webTestClient.get()
+                .uri("/api/v1/customers/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectBody()
+                .jsonPath("$.email").isEqualTo("alex@gmail.com")
+                .jsonPath("$.version").doesNotExist();
+    }
+
+    @Test
+    void getCustomerIsNotModifiedForAMatchingETag() {
+        // Given
+        when(customerService.getCustomer(1)).thenReturn(Mono.just(new Customer(1, "Alex", "alex@gmail.com", 19, 3)));
+
+        // When
+        // Then
+        webTestClient.get()
+                .uri("/api/v1/customers/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"")
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void getCustomerIsSentAgainForAnOlderETag() {
+        // Given
+        when(customerService.getCustomer(1)).thenReturn(Mono.just(new Customer(1, "Alex", "alex@gmail.com", 19, 4)));
+
+        // When
+        // Then
+        webTestClient.get()
+                .uri("/api/v1/customers/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"4\"");
+    }
+
+    @Test
+    void getCustomerReturnsNotFound() {
+        // Given
+        when(customerService.getCustomer(10))
+                .thenReturn(Mono.error(new ResourceNotFoundException("customer with id 10 is not found")));
+
+        // When
+        // Then
+        webTestClient.get()
+                .uri("/api/v1/customers/10")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void getCustomerRejectsANonNumericId() {
+        // When
+        // Then
+        webTestClient.get()
+                .uri("/api/v1/customers/abc")
+                .exchange()
+                .expectStatus().isBadRequest();
+        verifyNoInteractions(customerService);
+    }
+
+    @Test
+    void registerCustomer() {
+        // Given
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest("Alex", "alex@gmail.com", 19);
+        when(customerService.addCustomer(request)).thenReturn(Mono.empty());
+
+        // When
+        // Then
+        webTestClient.post()
+                .uri("/api/v1/customers")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isOk();
+        verify(customerService).addCustomer(request);
+    }
+}
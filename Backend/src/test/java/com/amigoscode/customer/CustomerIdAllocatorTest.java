@@ -0,0 +1,47 @@
+package com.amigoscode.customer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerIdAllocatorTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    private CustomerIdAllocator underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerIdAllocator(jdbcTemplate);
+    }
+
+    @Test
+    void handsOutABlockPerSequenceCall() {
+        // Given
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(1L, 51L);
+
+        // When
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < CustomerIdAllocator.ALLOCATION_SIZE + 1; i++) {
+            ids.add(underTest.nextId());
+        }
+
+        // Then
+        assertThat(ids.get(0)).isEqualTo(1);
+        assertThat(ids.get(CustomerIdAllocator.ALLOCATION_SIZE - 1)).isEqualTo(50);
+        assertThat(ids.get(CustomerIdAllocator.ALLOCATION_SIZE)).isEqualTo(51);
+        verify(jdbcTemplate, times(2)).queryForObject(anyString(), eq(Long.class));
+    }
+}
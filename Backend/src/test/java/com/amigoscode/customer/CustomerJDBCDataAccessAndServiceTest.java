@@ -3,12 +3,24 @@ package com.amigoscode.customer;
 import com.amigoscode.AbstractTestContainerUnitTest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
 
 class CustomerJDBCDataAccessAndServiceTest extends AbstractTestContainerUnitTest {
 
@@ -17,10 +29,11 @@ class CustomerJDBCDataAccessAndServiceTest extends AbstractTestContainerUnitTest
 
     @BeforeEach
     void setUp() {
-
+        JdbcTemplate jdbcTemplate = getJdbcTemplate();
         underTest = new CustomerJDBCDataAccessAndService(
-                getJdbcTemplate(),
-                customerRowMapper
+                jdbcTemplate,
+                customerRowMapper,
+                new CustomerIdAllocator(jdbcTemplate)
         );
     }
 
@@ -41,6 +54,67 @@ class CustomerJDBCDataAccessAndServiceTest extends AbstractTestContainerUnitTest
         assertThat(actual).isNotEmpty();
     }
 
+    @Test
+    void selectCustomersAfter() {
+        // given
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomer(new Customer(
+                    FAKER.name().fullName(),
+                    FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                    20
+            ));
+        }
+
+        // when
+        List<Customer> firstPage = underTest.selectCustomersAfter(0, 2);
+        int cursor = firstPage.get(firstPage.size() - 1).getId();
+        List<Customer> secondPage = underTest.selectCustomersAfter(cursor, 2);
+
+        //Then
+        assertThat(firstPage).hasSize(2);
+        assertThat(firstPage).isSortedAccordingTo(Comparator.comparing(Customer::getId));
+        assertThat(secondPage).isNotEmpty()
+                .allSatisfy(c -> assertThat(c.getId()).isGreaterThan(cursor));
+    }
+
+    @Test
+    void streamAllCustomers() {
+        // given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                email,
+                20
+        );
+        underTest.insertCustomer(customer);
+
+        // when
+        List<CustomerRow> actual = new ArrayList<>();
+        underTest.streamAllCustomers(actual::add);
+
+        //Then
+        assertThat(actual).isSortedAccordingTo(Comparator.comparingInt(CustomerRow::id));
+        assertThat(actual).extracting(CustomerRow::email).contains(email);
+    }
+
+    @Test
+    void streamAllEmails() {
+        // given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(),
+                email,
+                20
+        ));
+
+        // when
+        List<String> actual = new ArrayList<>();
+        underTest.streamAllEmails(actual::add);
+
+        //Then
+        assertThat(actual).contains(email);
+    }
+
     @Test
     void selectCustomerById() {
         // given
@@ -73,6 +147,152 @@ class CustomerJDBCDataAccessAndServiceTest extends AbstractTestContainerUnitTest
         });
     }
 
+    @Test
+    void selectCustomersFiltersSortsAndPages() {
+        // Given
+        String domain = UUID.randomUUID() + ".com";
+        underTest.insertCustomers(List.of(
+                new Customer("Carla", "carla@" + domain, 40),
+                new Customer("Bob", "bob@" + domain.toUpperCase(), 30),
+                new Customer("Anna", "anna@" + domain, 30),
+                new Customer("Young", "young@" + domain, 17)
+        ));
+        CustomerFilter filter = new CustomerFilter(18, null, domain, CustomerSort.AGE, true);
+
+        // When
+        List<Customer> firstPage = underTest.selectCustomers(filter, CustomerField.ALL, null, 2);
+        List<Customer> secondPage = underTest.selectCustomers(filter, CustomerField.ALL, CustomerCursor.of(firstPage.get(1), filter.sort()), 2);
+        List<Customer> byName = underTest.selectCustomers(
+                new CustomerFilter(null, null, domain, CustomerSort.NAME, false), CustomerField.ALL, null, 10
+        );
+
+        // Then
+        assertThat(firstPage).extracting(Customer::getName).containsExactly("Carla", "Anna");
+        assertThat(secondPage).extracting(Customer::getName).containsExactly("Bob");
+        assertThat(byName).extracting(Customer::getName).containsExactly("Anna", "Bob", "Carla", "Young");
+    }
+
+    @Test
+    void selectCustomersContinuesWhenTheCursorRowIsDeletedOrUpdated() {
+        // Given
+        String domain = UUID.randomUUID() + ".com";
+        underTest.insertCustomers(List.of(
+                new Customer("Anna", "anna@" + domain, 20),
+                new Customer("Bob", "bob@" + domain, 30),
+                new Customer("Carla", "carla@" + domain, 40),
+                new Customer("Dave", "dave@" + domain, 50)
+        ));
+        CustomerFilter filter = new CustomerFilter(null, null, domain, CustomerSort.AGE, false);
+        Customer anna = underTest.selectCustomers(filter, CustomerField.ALL, null, 1).get(0);
+
+        // When
+        underTest.deleteCustomer(anna.getId());
+        Customer bob = underTest.selectCustomers(filter, CustomerField.ALL, CustomerCursor.of(anna, filter.sort()), 1).get(0);
+        Customer moved = new Customer();
+        moved.setId(bob.getId());
+        moved.setAge(55);
+        underTest.updateCustomer(moved);
+        List<Customer> rest = underTest.selectCustomers(filter, CustomerField.ALL, CustomerCursor.of(bob, filter.sort()), 10);
+
+        // Then a row that moved past the cursor shows up again at its new place, nothing is skipped
+        assertThat(bob.getName()).isEqualTo("Bob");
+        assertThat(rest).extracting(Customer::getName).containsExactly("Carla", "Dave", "Bob");
+    }
+
+    @Test
+    void selectCustomersReadsOnlyTheRequestedFields() {
+        // Given
+        String domain = UUID.randomUUID() + ".com";
+        underTest.insertCustomer(new Customer("Anna", "anna@" + domain, 30));
+        CustomerFilter filter = new CustomerFilter(null, null, domain, CustomerSort.AGE, false);
+        Set<CustomerField> fields = CustomerField.parse("email");
+
+        // When
+        List<Customer> actual = underTest.selectCustomers(filter, fields, null, 10);
+
+        // Then
+        assertThat(CustomerJDBCDataAccessAndService.selectCustomersSql(filter, fields, null, 10, new ArrayList<>()))
+                .startsWith("SELECT id,email FROM customer");
+        assertThat(actual).singleElement().satisfies(c -> {
+            assertThat(c.getId()).isNotNull();
+            assertThat(c.getEmail()).isEqualTo("anna@" + domain);
+            assertThat(c.getName()).isNull();
+            assertThat(c.getAge()).isNull();
+        });
+    }
+
+    @Test
+    void filteredQueriesAreServedByTheCompositeIndexes() {
+        // Given
+        JdbcTemplate jdbcTemplate = getJdbcTemplate();
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+
+        transaction.executeWithoutResult(status -> {
+            // enough rows that a sequential scan stops being the cheapest plan, all rolled back afterwards
+            status.setRollbackOnly();
+            jdbcTemplate.update("""
+                    INSERT INTO customer(id, name, email, age)
+                    SELECT nextval('customer_id_seq'), 'plan ' || md5(g::text), 'plan-' || g || '-' || ? || '@domain' || (g % 100) || '.com', 18 + g % 80
+                    FROM generate_series(1, 50000) g
+                    """, UUID.randomUUID().toString());
+            jdbcTemplate.execute("ANALYZE customer");
+
+            // When
+            // Then
+            assertThat(plan(jdbcTemplate, new CustomerFilter(30, 31, null, CustomerSort.AGE, false), null))
+                    .contains("customer_age_id_idx")
+                    .doesNotContain("Seq Scan");
+            assertThat(plan(jdbcTemplate, new CustomerFilter(30, 31, null, CustomerSort.AGE, true), new CustomerCursor(CustomerSort.AGE, 31, 1000)))
+                    .contains("Index Scan Backward using customer_age_id_idx")
+                    .contains("ROW(age, id) < ROW(")
+                    .doesNotContain("Seq Scan");
+            assertThat(plan(jdbcTemplate, new CustomerFilter(null, null, null, CustomerSort.NAME, false), new CustomerCursor(CustomerSort.NAME, "plan", 1000)))
+                    .contains("customer_name_id_idx")
+                    .doesNotContain("Seq Scan");
+            assertThat(plan(jdbcTemplate, new CustomerFilter(null, null, "domain7.com", CustomerSort.ID, false), CustomerCursor.ofId(1000)))
+                    .contains("customer_email_domain_id_idx")
+                    .doesNotContain("Seq Scan");
+        });
+    }
+
+    private static String plan(JdbcTemplate jdbcTemplate, CustomerFilter filter, CustomerCursor after) {
+        List<Object> args = new ArrayList<>();
+        String sql = CustomerJDBCDataAccessAndService.selectCustomersSql(filter, CustomerField.ALL, after, 101, args);
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args.toArray()));
+    }
+
+    @Test
+    void searchCustomersMatchesNameOrEmailIgnoringCase() {
+        // Given
+        String marker = UUID.randomUUID().toString();
+        Customer byName = new Customer("Name " + marker, FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 20);
+        Customer byEmail = new Customer(FAKER.name().fullName(), "email-" + marker + "@gmail.com", 20);
+        underTest.insertCustomer(byName);
+        underTest.insertCustomer(byEmail);
+
+        // When
+        List<Customer> firstPage = underTest.searchCustomers(marker.toUpperCase(), 0, 1);
+        List<Customer> secondPage = underTest.searchCustomers(marker, firstPage.get(0).getId(), 10);
+
+        // Then
+        assertThat(firstPage).extracting(Customer::getId).containsExactly(byName.getId());
+        assertThat(secondPage).extracting(Customer::getId).containsExactly(byEmail.getId());
+    }
+
+    @Test
+    void searchCustomersTreatsWildcardsLiterally() {
+        // Given
+        String marker = UUID.randomUUID().toString().substring(0, 8);
+        underTest.insertCustomer(new Customer("100% " + marker, FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 20));
+        underTest.insertCustomer(new Customer("1000 " + marker, FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 20));
+
+        // When
+        List<Customer> actual = underTest.searchCustomers("100% " + marker, 0, 10);
+
+        // Then
+        assertThat(actual).extracting(Customer::getName).containsExactly("100% " + marker);
+    }
+
     @Test
     void willReturnEmptyWhenSelectCustomerById() {
 
@@ -88,7 +308,42 @@ class CustomerJDBCDataAccessAndServiceTest extends AbstractTestContainerUnitTest
 
     @Test
     void insertCustomer() {
+        // Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20
+        );
+
+        // When
+        underTest.insertCustomer(customer);
+
+        // Then the allocated id is handed back
+        assertThat(customer.getId()).isNotNull();
+        assertThat(underTest.selectCustomerById(customer.getId())).hasValue(customer);
+    }
 
+    @Test
+    void insertCustomersAndSelectExistingEmails() {
+        // Given
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            customers.add(new Customer(
+                    FAKER.name().fullName(),
+                    FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                    20
+            ));
+        }
+        String unknownEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+
+        // When
+        underTest.insertCustomers(customers);
+
+        // Then
+        List<String> emails = new ArrayList<>(customers.stream().map(Customer::getEmail).toList());
+        emails.add(unknownEmail);
+        assertThat(underTest.selectExistingEmails(emails))
+                .containsExactlyInAnyOrderElementsOf(customers.stream().map(Customer::getEmail).toList());
     }
 
     @Test
@@ -312,6 +567,37 @@ class CustomerJDBCDataAccessAndServiceTest extends AbstractTestContainerUnitTest
         assertThat(actual).isPresent().hasValue(updatedCustomer);
     }
 
+    @Test
+    void updateCustomerIssuesASingleStatement() {
+        // Given
+        JdbcTemplate jdbcTemplate = spy(getJdbcTemplate());
+        underTest = new CustomerJDBCDataAccessAndService(
+                jdbcTemplate,
+                customerRowMapper,
+                new CustomerIdAllocator(jdbcTemplate)
+        );
+
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20));
+
+        int id = underTest.selectAllCustomers()
+                .stream()
+                .filter(c -> c.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+        clearInvocations(jdbcTemplate);
+
+        // When update with new Name, Age and Email
+        Customer updatedCustomer = new Customer(id, "foo", UUID.randomUUID().toString(), 22);
+
+        underTest.updateCustomer(updatedCustomer);
+
+        // Then
+        verify(jdbcTemplate, times(1)).update(anyString(), any(Object[].class));
+        assertThat(underTest.selectCustomerById(id)).hasValue(updatedCustomer);
+    }
+
     @Test
     void willNotUpdateWhenNothingToUpdate() {
         // Given
@@ -366,10 +652,129 @@ class CustomerJDBCDataAccessAndServiceTest extends AbstractTestContainerUnitTest
                 .orElseThrow();
 
         // When
-        underTest.deleteCustomer(id);
+        boolean deleted = underTest.deleteCustomer(id);
 
         // Then
+        assertThat(deleted).isTrue();
         Optional<Customer> actual = underTest.selectCustomerById(id);
         assertThat(actual).isNotPresent();
+        assertThat(underTest.deleteCustomer(id)).isFalse();
+    }
+
+    @Test
+    void updateCustomerReturnsFalseWhenCustomerDoesNotExist() {
+        // Given
+        Customer update = new Customer();
+        update.setId(-1);
+        update.setAge(42);
+
+        Customer versioned = new Customer();
+        versioned.setId(-1);
+        versioned.setAge(42);
+        versioned.setVersion(0);
+
+        // When
+        // Then
+        assertThat(underTest.updateCustomer(update)).isFalse();
+        assertThat(underTest.updateCustomer(versioned)).isFalse();
+    }
+
+    @Test
+    void updateCustomerBumpsTheVersionAndTheCollectionVersion() {
+        // Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20
+        );
+        underTest.insertCustomer(customer);
+        int version = underTest.selectCustomerById(customer.getId()).orElseThrow().getVersion();
+        long collectionVersion = underTest.selectCollectionVersion();
+
+        // When
+        Customer update = new Customer();
+        update.setId(customer.getId());
+        update.setAge(42);
+        underTest.updateCustomer(update);
+
+        // Then
+        assertThat(underTest.selectCustomerById(customer.getId()))
+                .hasValueSatisfying(c -> assertThat(c.getVersion()).isEqualTo(version + 1));
+        assertThat(underTest.selectCollectionVersion()).isGreaterThan(collectionVersion);
+    }
+
+    @Test
+    void anUpdateOfNoRowsLeavesTheCollectionVersion() {
+        // Given
+        long collectionVersion = underTest.selectCollectionVersion();
+        Customer update = new Customer();
+        update.setId(-1);
+        update.setAge(42);
+
+        // When
+        boolean actual = underTest.updateCustomer(update);
+
+        // Then
+        assertThat(actual).isFalse();
+        assertThat(underTest.selectCollectionVersion()).isEqualTo(collectionVersion);
+    }
+
+    @Test
+    void theCollectionVersionMovesOnlyOnceAWriteCommits() throws SQLException {
+        // Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20
+        );
+        underTest.insertCustomer(customer);
+        long collectionVersion = underTest.selectCollectionVersion();
+
+        try (Connection writer = getJdbcTemplate().getDataSource().getConnection()) {
+            writer.setAutoCommit(false);
+            try (Statement statement = writer.createStatement()) {
+                statement.executeUpdate("UPDATE customer SET age = 42 WHERE id = " + customer.getId());
+            }
+
+            // When
+            long uncommitted = underTest.selectCollectionVersion();
+            writer.commit();
+
+            // Then
+            assertThat(uncommitted).isEqualTo(collectionVersion);
+        }
+        assertThat(underTest.selectCollectionVersion()).isGreaterThan(collectionVersion);
+    }
+
+    @Test
+    void updateCustomerOnlyAppliesToTheExpectedVersion() {
+        // Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20
+        );
+        underTest.insertCustomer(customer);
+        int version = underTest.selectCustomerById(customer.getId()).orElseThrow().getVersion();
+
+        Customer first = new Customer();
+        first.setId(customer.getId());
+        first.setAge(30);
+        first.setVersion(version);
+        underTest.updateCustomer(first);
+
+        // When a second writer still holds the old version
+        Customer second = new Customer();
+        second.setId(customer.getId());
+        second.setAge(40);
+        second.setVersion(version);
+
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(second))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(underTest.selectCustomerById(customer.getId())).hasValueSatisfying(c -> {
+            assertThat(c.getAge()).isEqualTo(30);
+            assertThat(c.getVersion()).isEqualTo(version + 1);
+        });
     }
-}
\ No newline at end of file
+}
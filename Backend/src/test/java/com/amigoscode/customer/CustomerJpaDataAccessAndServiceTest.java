@@ -1,11 +1,18 @@
 package com.amigoscode.customer;
 
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -17,11 +24,17 @@ class CustomerJpaDataAccessAndServiceTest {
 
     @Mock
     private CustomerRepository customerRepository;
+    @Mock
+    private SessionFactory sessionFactory;
+    @Mock
+    private Cache secondLevelCache;
 
     @BeforeEach
     void setUp() {
         autoCloseable = MockitoAnnotations.openMocks(this);
-        underTest = new CustomerJpaDataAccessAndService(customerRepository);
+        when(sessionFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(secondLevelCache);
+        underTest = new CustomerJpaDataAccessAndService(customerRepository, sessionFactory);
     }
 
     @AfterEach
@@ -39,6 +52,19 @@ class CustomerJpaDataAccessAndServiceTest {
         //Mockito.verify(customerRepository, Mockito.times(1)).findAll();
     }
 
+    @Test
+    void selectCustomersAfter() {
+        // Given
+        int afterId = 10;
+        int limit = 5;
+
+        // When
+        underTest.selectCustomersAfter(afterId, limit);
+
+        // Then
+        verify(customerRepository).findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit));
+    }
+
     @Test
     void selectCustomerById() {
         // Given
@@ -68,6 +94,34 @@ class CustomerJpaDataAccessAndServiceTest {
         verify(customerRepository).save(customer);
     }
 
+    @Test
+    void insertCustomers() {
+        //Given
+        List<Customer> customers = List.of(new Customer(
+                "Ali",
+                "ali@gmail.com",
+                20
+        ));
+
+        // When
+        underTest.insertCustomers(customers);
+
+        // Then
+        verify(customerRepository).saveAll(customers);
+    }
+
+    @Test
+    void selectExistingEmails() {
+        // Given
+        List<String> emails = List.of("foo@gmail.com", "bar@gmail.com");
+
+        // When
+        underTest.selectExistingEmails(emails);
+
+        // Then
+        verify(customerRepository).findEmailsIn(new String[]{"foo@gmail.com", "bar@gmail.com"});
+    }
+
     @Test
     void existsPersonWithEmail() {
         // Given
@@ -84,12 +138,51 @@ class CustomerJpaDataAccessAndServiceTest {
     void deleteCustomer() {
         // Given
         int id = 1;
+        when(customerRepository.deleteCustomerById(id)).thenReturn(1);
+
+        // When
+        boolean actual = underTest.deleteCustomer(id);
+
+        // Then
+        assertTrue(actual);
+        verify(customerRepository).deleteCustomerById(id);
+        verify(secondLevelCache).evict(Customer.class, id);
+        verify(secondLevelCache, never()).evict(Customer.class);
+    }
+
+    @Test
+    void deleteCustomerReturnsFalseWhenCustomerIsGone() {
+        // Given
+        int id = 1;
+        when(customerRepository.deleteCustomerById(id)).thenReturn(0);
 
         // When
-        underTest.deleteCustomer(id);
+        boolean actual = underTest.deleteCustomer(id);
 
         // Then
-        verify(customerRepository).deleteById(id);
+        assertFalse(actual);
+    }
+
+    @Test
+    void selectCustomersContinuesFromTheCursorWithoutReadingItsRow() {
+        // Given
+        CustomerFilter filter = new CustomerFilter(18, null, null, CustomerSort.AGE, false);
+
+        // When
+        underTest.selectCustomers(filter, CustomerField.ALL, new CustomerCursor(CustomerSort.AGE, 30, 5), 10);
+
+        // Then
+        verify(customerRepository, never()).findById(any());
+        verify(customerRepository).findBy(any(Specification.class), any());
+    }
+
+    @Test
+    void searchCustomers() {
+        // When
+        underTest.searchCustomers("al_x", 10, 5);
+
+        // Then
+        verify(customerRepository).searchByNameOrEmail("%al\\_x%", 10, 5);
     }
 
     @Test
@@ -107,17 +200,50 @@ class CustomerJpaDataAccessAndServiceTest {
     @Test
     void updateCustomer() {
         //Given
-        Customer customer = new Customer(
-                1,
-                "Ali",
-                "ali@gmail.com",
-                20
-        );
+        Customer update = new Customer(1, null, "alex@gmail.com", 21, 3);
+        when(customerRepository.updateCustomer(1, null, "alex@gmail.com", 21, 3)).thenReturn(1);
 
         // When
-        underTest.updateCustomer(customer);
+        boolean actual = underTest.updateCustomer(update);
 
         // Then
-        verify(customerRepository).save(customer);
+        assertTrue(actual);
+        verify(customerRepository, never()).save(any());
+        verify(secondLevelCache).evict(Customer.class, 1);
+    }
+
+    @Test
+    void willThrowWhenUpdatingAStaleVersion() {
+        //Given
+        when(customerRepository.updateCustomer(1, "Alex", null, null, 3)).thenReturn(0);
+        when(customerRepository.existsById(1)).thenReturn(true);
+
+        // When
+        // Then
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> underTest.updateCustomer(new Customer(1, "Alex", null, null, 3)));
+    }
+
+    @Test
+    void updateCustomerReturnsFalseWhenCustomerIsGone() {
+        //Given
+        Customer customer = new Customer(1, "Ali", "ali@gmail.com", 20, 3);
+        when(customerRepository.updateCustomer(1, "Ali", "ali@gmail.com", 20, 3)).thenReturn(0);
+        when(customerRepository.existsById(1)).thenReturn(false);
+
+        // When
+        boolean actual = underTest.updateCustomer(customer);
+
+        // Then
+        assertFalse(actual);
+    }
+
+    @Test
+    void selectCollectionVersion() {
+        // When
+        underTest.selectCollectionVersion();
+
+        // Then
+        verify(customerRepository).findCollectionVersion();
     }
-}
\ No newline at end of file
+}
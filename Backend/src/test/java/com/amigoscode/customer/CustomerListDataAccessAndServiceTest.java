@@ -0,0 +1,442 @@
+package com.amigoscode.customer;
+
+import com.github.javafaker.Faker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerListDataAccessAndServiceTest {
+
+    private static final Faker FAKER = new Faker();
+
+    private CustomerListDataAccessAndService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerListDataAccessAndService();
+    }
+
+    @Test
+    void selectAllCustomers() {
+        // given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20
+        );
+        underTest.insertCustomer(customer);
+
+        // when
+        List<Customer> actual = underTest.selectAllCustomers();
+
+        //Then
+        assertThat(actual).hasSize(3);
+        assertThat(actual).isSortedAccordingTo(Comparator.comparing(Customer::getId));
+    }
+
+    @Test
+    void selectCustomersAfter() {
+        // given
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomer(new Customer(
+                    FAKER.name().fullName(),
+                    FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                    20
+            ));
+        }
+
+        // when
+        List<Customer> firstPage = underTest.selectCustomersAfter(0, 2);
+        List<Customer> secondPage = underTest.selectCustomersAfter(2, 10);
+
+        //Then
+        assertThat(firstPage).extracting(Customer::getId).containsExactly(1, 2);
+        assertThat(secondPage).extracting(Customer::getId).containsExactly(3, 4, 5);
+    }
+
+    @Test
+    void selectCustomersFiltersSortsAndPages() {
+        // Given
+        String domain = UUID.randomUUID() + ".com";
+        underTest.insertCustomer(new Customer("Carla", "carla@" + domain, 40));
+        underTest.insertCustomer(new Customer("Bob", "bob@" + domain, 30));
+        underTest.insertCustomer(new Customer("Anna", "anna@" + domain, 30));
+        underTest.insertCustomer(new Customer("Young", "young@" + domain, 17));
+        CustomerFilter filter = new CustomerFilter(18, null, domain, CustomerSort.AGE, true);
+
+        // When
+        List<Customer> firstPage = underTest.selectCustomers(filter, CustomerField.ALL, null, 2);
+        List<Customer> secondPage = underTest.selectCustomers(filter, CustomerField.ALL, CustomerCursor.of(firstPage.get(1), filter.sort()), 2);
+
+        // Then
+        assertThat(firstPage).extracting(Customer::getName).containsExactly("Carla", "Anna");
+        assertThat(secondPage).extracting(Customer::getName).containsExactly("Bob");
+    }
+
+    @Test
+    void selectCustomersProjectsTheRequestedFields() {
+        // When
+        List<Customer> actual = underTest.selectCustomers(CustomerFilter.NONE, CustomerField.parse("name"), null, 1);
+
+        // Then
+        assertThat(actual).singleElement().satisfies(c -> {
+            assertThat(c.getId()).isEqualTo(1);
+            assertThat(c.getName()).isEqualTo("Alex");
+            assertThat(c.getEmail()).isNull();
+            assertThat(c.getAge()).isNull();
+        });
+    }
+
+    @Test
+    void searchCustomersPagesThroughMatchesById() {
+        // Given
+        String marker = UUID.randomUUID().toString();
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomer(new Customer(
+                    FAKER.name().fullName(),
+                    "search-" + i + "-" + marker + "@gmail.com",
+                    20
+            ));
+        }
+
+        // When
+        List<Customer> firstPage = underTest.searchCustomers(marker.toUpperCase(), 0, 2);
+        List<Customer> secondPage = underTest.searchCustomers(marker, firstPage.get(1).getId(), 2);
+
+        // Then
+        assertThat(firstPage).extracting(Customer::getEmail)
+                .containsExactly("search-0-" + marker + "@gmail.com", "search-1-" + marker + "@gmail.com");
+        assertThat(secondPage).extracting(Customer::getEmail)
+                .containsExactly("search-2-" + marker + "@gmail.com");
+    }
+
+    @Test
+    void searchFollowsUpdatedNames() {
+        // Given
+        Customer update = new Customer();
+        update.setId(1);
+        update.setName("Alexandro");
+
+        // When
+        underTest.updateCustomer(update);
+
+        // Then
+        assertThat(underTest.searchCustomers("xandro", 0, 10)).extracting(Customer::getId).containsExactly(1);
+        assertThat(underTest.searchCustomers("alex", 0, 10)).extracting(Customer::getId).containsExactly(1);
+        assertThat(underTest.searchCustomers("ally", 0, 10)).extracting(Customer::getId).containsExactly(2);
+    }
+
+    @Test
+    void selectCustomerById() {
+        // given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                email,
+                20
+        );
+        underTest.insertCustomer(customer);
+
+        int id = idOf(email);
+
+        //When
+        Optional<Customer> actual = underTest.selectCustomerById(id);
+
+        //Then
+        assertThat(actual).isPresent().hasValueSatisfying(c -> {
+            assertThat(c.getId()).isEqualTo(id);
+            assertThat(c.getEmail()).isEqualTo(customer.getEmail());
+            assertThat(c.getName()).isEqualTo(customer.getName());
+            assertThat(c.getAge()).isEqualTo(customer.getAge());
+        });
+    }
+
+    @Test
+    void willReturnEmptyWhenSelectCustomerById() {
+        // Given
+        int id = -1;
+
+        //When
+        var actual = underTest.selectCustomerById(id);
+
+        //Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void willThrowWhenInsertingDuplicateEmail() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer("Alex", email, 20));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.insertCustomer(new Customer("Ally", email, 21)))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(underTest.selectAllCustomers())
+                .filteredOn(c -> c.getEmail().equals(email))
+                .hasSize(1);
+    }
+
+    @Test
+    void onlyOneConcurrentInsertWinsForTheSameEmail() throws Exception {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        List<Callable<Boolean>> inserts = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            inserts.add(() -> {
+                try {
+                    underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20));
+                    return true;
+                } catch (DuplicateKeyException e) {
+                    return false;
+                }
+            });
+        }
+
+        // When
+        int succeeded = 0;
+        for (Future<Boolean> result : executor.invokeAll(inserts)) {
+            if (result.get()) {
+                succeeded++;
+            }
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(succeeded).isEqualTo(1);
+        assertThat(underTest.existsPersonWithEmail(email)).isTrue();
+    }
+
+    @Test
+    void insertCustomersAndSelectExistingEmails() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+
+        // When
+        underTest.insertCustomers(List.of(new Customer(FAKER.name().fullName(), email, 20)));
+
+        // Then
+        assertThat(underTest.selectExistingEmails(List.of(email, "alex@gmail.com", "nobody@gmail.com")))
+                .containsExactlyInAnyOrder(email, "alex@gmail.com");
+    }
+
+    @Test
+    void existsPersonWithEmail() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20));
+
+        // when
+        boolean actual = underTest.existsPersonWithEmail(email);
+
+        // Then
+        assertThat(actual).isTrue();
+    }
+
+    @Test
+    void existsPersonWithEmailReturnFalseWhenDoesNotExits() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+
+        // When
+        boolean actual = underTest.existsPersonWithEmail(email);
+
+        // Then
+        assertThat(actual).isFalse();
+    }
+
+    @Test
+    void existsCustomerWithId() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20));
+
+        int id = idOf(email);
+
+        // When
+        var actual = underTest.existsCustomerWithId(id);
+
+        // Then
+        assertThat(actual).isTrue();
+    }
+
+    @Test
+    void existsCustomerWithIdReturnFalseWhenDoesNotExits() {
+        // Given
+        int id = -1;
+
+        // when
+        var actual = underTest.existsCustomerWithId(id);
+
+        // Then
+        assertThat(actual).isFalse();
+    }
+
+    @Test
+    void updateCustomerName() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = new Customer(FAKER.name().fullName(), email, 20);
+        underTest.insertCustomer(customer);
+
+        int id = idOf(email);
+
+        // When name is changed
+        Customer updatedCustomer = new Customer();
+        updatedCustomer.setId(id);
+        updatedCustomer.setName("foo");
+
+        underTest.updateCustomer(updatedCustomer);
+
+        // Then
+        Optional<Customer> actual = underTest.selectCustomerById(id);
+        assertThat(actual).isPresent().hasValueSatisfying(c -> {
+            assertThat(c.getName()).isEqualTo("foo"); // change
+            assertThat(c.getEmail()).isEqualTo(customer.getEmail());
+            assertThat(c.getAge()).isEqualTo(customer.getAge());
+        });
+    }
+
+    @Test
+    void updateCustomerEmailMovesTheEmailIndex() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20));
+
+        int id = idOf(email);
+        var newEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+
+        // When email is changed
+        Customer updatedCustomer = new Customer();
+        updatedCustomer.setId(id);
+        updatedCustomer.setEmail(newEmail);
+
+        underTest.updateCustomer(updatedCustomer);
+
+        // Then
+        assertThat(underTest.selectCustomerById(id))
+                .hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo(newEmail));
+        assertThat(underTest.existsPersonWithEmail(newEmail)).isTrue();
+        assertThat(underTest.existsPersonWithEmail(email)).isFalse();
+    }
+
+    @Test
+    void willThrowWhenUpdatingToAnEmailAlreadyTaken() {
+        //Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20));
+
+        int id = idOf(email);
+
+        // When email is changed to an existing one
+        Customer updatedCustomer = new Customer();
+        updatedCustomer.setId(id);
+        updatedCustomer.setEmail("alex@gmail.com");
+
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(updatedCustomer))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(underTest.selectCustomerById(id))
+                .hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo(email));
+    }
+
+    @Test
+    void writesBumpTheVersions() {
+        // Given
+        long collectionVersion = underTest.selectCollectionVersion();
+
+        // When
+        Customer update = new Customer();
+        update.setId(1);
+        update.setAge(42);
+        underTest.updateCustomer(update);
+        underTest.deleteCustomer(2);
+
+        // Then
+        assertThat(underTest.selectCustomerById(1))
+                .hasValueSatisfying(c -> assertThat(c.getVersion()).isEqualTo(1));
+        assertThat(underTest.selectCollectionVersion()).isEqualTo(collectionVersion + 2);
+    }
+
+    @Test
+    void willThrowWhenUpdatingAStaleVersion() {
+        // Given
+        Customer customer = underTest.selectCustomerById(1).orElseThrow();
+        Customer first = new Customer();
+        first.setId(1);
+        first.setAge(42);
+        first.setVersion(customer.getVersion());
+        underTest.updateCustomer(first);
+
+        // When
+        Customer stale = new Customer();
+        stale.setId(1);
+        stale.setAge(43);
+        stale.setVersion(customer.getVersion());
+
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(stale))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(underTest.selectCustomerById(1))
+                .hasValueSatisfying(c -> assertThat(c.getAge()).isEqualTo(42));
+    }
+
+    @Test
+    void mutatingAReturnedCustomerDoesNotChangeTheStore() {
+        // Given
+        Customer customer = underTest.selectCustomerById(1).orElseThrow();
+
+        // When
+        customer.setName("foo");
+
+        // Then
+        assertThat(underTest.selectCustomerById(1))
+                .hasValueSatisfying(c -> assertThat(c.getName()).isEqualTo("Alex"));
+    }
+
+    @Test
+    void deleteCustomer() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20));
+
+        int id = idOf(email);
+
+        // When
+        boolean deleted = underTest.deleteCustomer(id);
+
+        // Then
+        assertThat(deleted).isTrue();
+        assertThat(underTest.deleteCustomer(id)).isFalse();
+        assertThat(underTest.selectCustomerById(id)).isNotPresent();
+        assertThat(underTest.existsPersonWithEmail(email)).isFalse();
+        assertThat(underTest.selectAllCustomers()).extracting(Customer::getId).doesNotContain(id);
+    }
+
+    private int idOf(String email) {
+        return underTest.selectAllCustomers()
+                .stream()
+                .filter(c -> c.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,101 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.DublicateResourceException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerMetricsPostProcessorTest {
+
+    private MeterRegistry meterRegistry;
+    private CustomerMetricsPostProcessor underTest;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", meterRegistry);
+        underTest = new CustomerMetricsPostProcessor(beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    @Test
+    void timesDaoCallsTaggedWithTheQualifier() {
+        // Given
+        CustomerDAO customerDAO = (CustomerDAO) underTest.postProcessAfterInitialization(
+                new CustomerListDataAccessAndService(), "list"
+        );
+
+        // When
+        customerDAO.selectCustomerById(1);
+        customerDAO.selectCustomerById(1);
+        customerDAO.selectCustomerById(-1);
+
+        // Then
+        assertThat(meterRegistry.get(CustomerMetricsPostProcessor.DAO_TIMER)
+                .tags("dao", "list", "method", "selectCustomerById", "outcome", "ok")
+                .timer()
+                .count()).isEqualTo(2);
+        assertThat(meterRegistry.get(CustomerMetricsPostProcessor.DAO_TIMER)
+                .tags("dao", "list", "method", "selectCustomerById", "outcome", "not_found")
+                .timer()
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void tagsAUniqueViolationAsDuplicate() {
+        // Given
+        CustomerDAO customerDAO = (CustomerDAO) underTest.postProcessAfterInitialization(
+                new CustomerListDataAccessAndService(), "list"
+        );
+
+        // When
+        assertThatThrownBy(() -> customerDAO.insertCustomer(new Customer("Alex", "alex@gmail.com", 23)));
+
+        // Then
+        assertThat(meterRegistry.get(CustomerMetricsPostProcessor.DAO_TIMER)
+                .tags("method", "insertCustomer", "outcome", "duplicate")
+                .timer()
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void timesServiceCallsByOutcome() {
+        // Given
+        CustomerService customerService = (CustomerService) underTest.postProcessAfterInitialization(
+                new CustomerService(new CustomerListDataAccessAndService(), new CustomerEmailFilter(1000, 0.01), null),
+                "customerService"
+        );
+
+        // When
+        customerService.getCustomer(1);
+        assertThatThrownBy(() -> customerService.addCustomer(new CustomerRegistrationRequest("Alex", "alex@gmail.com", 23)))
+                .isInstanceOf(DublicateResourceException.class);
+
+        // Then
+        assertThat(meterRegistry.get(CustomerMetricsPostProcessor.SERVICE_TIMER)
+                .tags("service", "customerService", "method", "getCustomer", "outcome", "ok")
+                .timer()
+                .count()).isEqualTo(1);
+        assertThat(meterRegistry.get(CustomerMetricsPostProcessor.SERVICE_TIMER)
+                .tags("method", "addCustomer", "outcome", "duplicate")
+                .timer()
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void leavesOtherBeansAlone() {
+        // Given
+        Object bean = new Object();
+
+        // When
+        Object actual = underTest.postProcessAfterInitialization(bean, "other");
+
+        // Then
+        assertThat(actual).isSameAs(bean);
+    }
+}
@@ -0,0 +1,202 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.AbstractTestContainerUnitTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerR2dbcDataAccessAndServiceTest extends AbstractTestContainerUnitTest {
+
+    private CustomerR2dbcDataAccessAndService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerR2dbcDataAccessAndService(getDatabaseClient());
+    }
+
+    @Test
+    void streamAllCustomers() {
+        // given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20)).block();
+
+        // when
+        List<Customer> actual = underTest.streamAllCustomers().collectList().block();
+
+        //Then
+        assertThat(actual).isSortedAccordingTo(Comparator.comparing(Customer::getId));
+        assertThat(actual).extracting(Customer::getEmail).contains(email);
+    }
+
+    @Test
+    void selectCustomersAfter() {
+        // given
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomer(new Customer(
+                    FAKER.name().fullName(),
+                    FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                    20
+            )).block();
+        }
+
+        // when
+        List<Customer> firstPage = underTest.selectCustomersAfter(0, 2).collectList().block();
+        int cursor = firstPage.get(firstPage.size() - 1).getId();
+        List<Customer> secondPage = underTest.selectCustomersAfter(cursor, 2).collectList().block();
+
+        //Then
+        assertThat(firstPage).hasSize(2);
+        assertThat(firstPage).isSortedAccordingTo(Comparator.comparing(Customer::getId));
+        assertThat(secondPage).isNotEmpty()
+                .allSatisfy(c -> assertThat(c.getId()).isGreaterThan(cursor));
+    }
+
+    @Test
+    void insertCustomerAndSelectCustomerById() {
+        // Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20
+        );
+
+        // When
+        underTest.insertCustomer(customer).block();
+
+        // Then
+        assertThat(customer.getId()).isNotNull();
+        assertThat(underTest.selectCustomerById(customer.getId()).blockOptional())
+                .hasValue(customer);
+    }
+
+    @Test
+    void willReturnEmptyWhenSelectCustomerById() {
+        // When
+        var actual = underTest.selectCustomerById(-1).blockOptional();
+
+        // Then
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void willTranslateDuplicateEmail() {
+        // Given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer("Alex", email, 20)).block();
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.insertCustomer(new Customer("Ally", email, 21)).block())
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void insertCustomersAndSelectExistingEmails() {
+        // Given
+        String first = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String second = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String missing = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+
+        // When
+        underTest.insertCustomers(List.of(
+                new Customer(FAKER.name().fullName(), first, 20),
+                new Customer(FAKER.name().fullName(), second, 30)
+        )).block();
+
+        // Then
+        assertThat(underTest.selectExistingEmails(List.of(first, second, missing)).collectList().block())
+                .containsExactlyInAnyOrder(first, second);
+    }
+
+    @Test
+    void existsPersonWithEmailAndId() {
+        // Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20
+        );
+        underTest.insertCustomer(customer).block();
+
+        // When
+        // Then
+        assertThat(underTest.existsPersonWithEmail(customer.getEmail()).block()).isTrue();
+        assertThat(underTest.existsPersonWithEmail("nobody-" + UUID.randomUUID()).block()).isFalse();
+        assertThat(underTest.existsCustomerWithId(customer.getId()).block()).isTrue();
+        assertThat(underTest.existsCustomerWithId(-1).block()).isFalse();
+    }
+
+    @Test
+    void updateCustomerKeepsColumnsThatAreNull() {
+        // Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20
+        );
+        underTest.insertCustomer(customer).block();
+
+        // When age is changed
+        Customer update = new Customer();
+        update.setId(customer.getId());
+        update.setAge(42);
+        underTest.updateCustomer(update).block();
+
+        // Then
+        assertThat(underTest.selectCustomerById(customer.getId()).block()).satisfies(c -> {
+            assertThat(c.getAge()).isEqualTo(42); // change
+            assertThat(c.getName()).isEqualTo(customer.getName());
+            assertThat(c.getEmail()).isEqualTo(customer.getEmail());
+        });
+    }
+
+    @Test
+    void willNotUpdateAStaleVersion() {
+        // Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20
+        );
+        underTest.insertCustomer(customer).block();
+        int version = underTest.selectCustomerById(customer.getId()).block().getVersion();
+
+        // When
+        Customer stale = new Customer();
+        stale.setId(customer.getId());
+        stale.setAge(42);
+        stale.setVersion(version + 1);
+
+        // Then
+        assertThatThrownBy(() -> underTest.updateCustomer(stale).block())
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(underTest.selectCustomerById(customer.getId()).block().getAge()).isEqualTo(20);
+    }
+
+    @Test
+    void deleteCustomer() {
+        // Given
+        Customer customer = new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20
+        );
+        underTest.insertCustomer(customer).block();
+
+        // When
+        Boolean deleted = underTest.deleteCustomer(customer.getId()).block();
+
+        // Then
+        assertThat(deleted).isTrue();
+        assertThat(underTest.deleteCustomer(customer.getId()).block()).isFalse();
+        assertThat(underTest.selectCustomerById(customer.getId()).blockOptional()).isEmpty();
+    }
+}
@@ -55,6 +55,133 @@ class CustomerRepositoryTest extends AbstractTestContainerUnitTest {
         assertThat(actual).isTrue();
     }
 
+    @Test
+    void updateCustomerChecksTheVersion() {
+        // given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = customerRepository.save(new Customer(
+                FAKER.name().fullName(),
+                email,
+                20
+        ));
+        int version = customer.getVersion();
+
+        // When
+        int stale = customerRepository.updateCustomer(customer.getId(), null, null, 30, version + 1);
+        int current = customerRepository.updateCustomer(customer.getId(), null, null, 40, version);
+
+        // Then
+        assertThat(stale).isZero();
+        assertThat(current).isOne();
+        assertThat(customerRepository.findById(customer.getId())).hasValueSatisfying(c -> {
+            assertThat(c.getAge()).isEqualTo(40);
+            assertThat(c.getEmail()).isEqualTo(email);
+            assertThat(c.getVersion()).isEqualTo(version + 1);
+        });
+    }
+
+    @Test
+    void deleteCustomerByIdReportsTheDeletedRows() {
+        // given
+        Customer customer = customerRepository.save(new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20
+        ));
+
+        // When
+        int deleted = customerRepository.deleteCustomerById(customer.getId());
+        int deletedAgain = customerRepository.deleteCustomerById(customer.getId());
+
+        // Then
+        assertThat(deleted).isOne();
+        assertThat(deletedAgain).isZero();
+        assertThat(customerRepository.existsById(customer.getId())).isFalse();
+    }
+
+    @Test
+    void findByCustomerSpecifications() {
+        // given
+        String domain = UUID.randomUUID() + ".com";
+        Customer carla = customerRepository.save(new Customer("Carla", "carla@" + domain, 40));
+        Customer bob = customerRepository.save(new Customer("Bob", "bob@" + domain.toUpperCase(), 30));
+        Customer anna = customerRepository.save(new Customer("Anna", "anna@" + domain, 30));
+        customerRepository.save(new Customer("Young", "young@" + domain, 17));
+        customerRepository.flush();
+        CustomerFilter filter = new CustomerFilter(18, null, domain, CustomerSort.AGE, true);
+
+        // When
+        var firstPage = customerRepository.findBy(CustomerSpecifications.matching(filter), query -> query
+                .sortBy(CustomerSpecifications.sort(filter))
+                .limit(2)
+                .all());
+        var secondPage = customerRepository.findBy(
+                CustomerSpecifications.matching(filter).and(CustomerSpecifications.after(filter, CustomerCursor.of(anna, filter.sort()))),
+                query -> query.sortBy(CustomerSpecifications.sort(filter)).limit(2).all()
+        );
+
+        // Then
+        assertThat(firstPage).extracting(Customer::getId).containsExactly(carla.getId(), anna.getId());
+        assertThat(secondPage).extracting(Customer::getId).containsExactly(bob.getId());
+    }
+
+    @Test
+    void findProjectedSelectsOnlyTheRequestedFields() {
+        // given
+        String domain = UUID.randomUUID() + ".com";
+        Customer anna = customerRepository.save(new Customer("Anna", "anna@" + domain, 30));
+        customerRepository.save(new Customer("Bob", "bob@" + domain, 40));
+        customerRepository.flush();
+        CustomerFilter filter = new CustomerFilter(null, 35, domain, CustomerSort.NAME, false);
+
+        // When
+        var actual = customerRepository.findProjected(
+                CustomerSpecifications.matching(filter),
+                CustomerSpecifications.sort(filter),
+                CustomerField.parse("email"),
+                10
+        );
+
+        // Then
+        assertThat(actual).singleElement().satisfies(c -> {
+            assertThat(c.getId()).isEqualTo(anna.getId());
+            assertThat(c.getEmail()).isEqualTo(anna.getEmail());
+            assertThat(c.getName()).isNull();
+            assertThat(c.getAge()).isNull();
+        });
+    }
+
+    @Test
+    void searchByNameOrEmail() {
+        // given
+        String marker = UUID.randomUUID().toString();
+        Customer customer = customerRepository.save(new Customer(
+                FAKER.name().fullName(),
+                "search-" + marker + "@gmail.com",
+                20
+        ));
+
+        // When
+        var actual = customerRepository.searchByNameOrEmail("%" + marker.toUpperCase() + "%", 0, 10);
+
+        // Then
+        assertThat(actual).extracting(Customer::getId).containsExactly(customer.getId());
+    }
+
+    @Test
+    void findEmailsInReturnsOnlyTheExistingOnes() {
+        // given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        customerRepository.save(new Customer(FAKER.name().fullName(), email, 20));
+        String missing = "missing-" + UUID.randomUUID() + "@gmail.com";
+
+        // when
+        var actual = customerRepository.findEmailsIn(new String[]{email, missing});
+
+        // then
+        assertThat(actual).containsExactly(email);
+    }
+
     @Test
     void existsCustomerByEmail() {
         // given
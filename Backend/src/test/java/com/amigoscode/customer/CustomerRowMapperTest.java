@@ -5,9 +5,14 @@ import org.mockito.Mockito;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.EnumSet;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class CustomerRowMapperTest {
@@ -17,11 +22,7 @@ class CustomerRowMapperTest {
         // Given
         CustomerRowMapper customerRowMapper = new CustomerRowMapper();
 
-        ResultSet resultSet = mock(ResultSet.class);
-        when(resultSet.getInt("id")).thenReturn(1);
-        when(resultSet.getInt("age")).thenReturn(19);
-        when(resultSet.getString("name")).thenReturn("Jamila");
-        when(resultSet.getString("email")).thenReturn("jamila@gmail.com");
+        ResultSet resultSet = customerResultSet();
 
         // When
         Customer actual = customerRowMapper.mapRow(resultSet, 1);
@@ -35,6 +36,79 @@ class CustomerRowMapperTest {
         );
 
         assertEquals(expected, actual);
+        assertEquals(3, actual.getVersion());
+
+    }
+
+    @Test
+    void mapCustomerRow() throws SQLException {
+        // Given
+        CustomerRowMapper customerRowMapper = new CustomerRowMapper();
+
+        ResultSet resultSet = customerResultSet();
+
+        // When
+        CustomerRow actual = customerRowMapper.mapCustomerRow(resultSet);
+
+        // Then
+        assertEquals(new CustomerRow(1, "Jamila", "jamila@gmail.com", 19), actual);
+    }
+
+    @Test
+    void mapRowResolvesColumnsOncePerResultSet() throws SQLException {
+        // Given
+        CustomerRowMapper customerRowMapper = new CustomerRowMapper();
 
+        ResultSet first = customerResultSet();
+        ResultSet second = customerResultSet();
+
+        // When
+        customerRowMapper.mapRow(first, 0);
+        customerRowMapper.mapRow(first, 1);
+        customerRowMapper.mapCustomerRow(first);
+        customerRowMapper.mapRow(second, 0);
+
+        // Then
+        verify(first, times(1)).findColumn("id");
+        verify(second, times(1)).findColumn("id");
+        verify(first, never()).getInt(anyString());
+        verify(first, never()).getString(anyString());
+    }
+
+    @Test
+    void projectionReadsTheSelectedColumnsByPosition() throws SQLException {
+        // Given SELECT id,email
+        CustomerRowMapper customerRowMapper = new CustomerRowMapper();
+
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getInt(1)).thenReturn(1);
+        when(resultSet.getString(2)).thenReturn("jamila@gmail.com");
+
+        // When
+        Customer actual = customerRowMapper.projection(EnumSet.of(CustomerField.ID, CustomerField.EMAIL))
+                .mapRow(resultSet, 0);
+
+        // Then
+        assertEquals(1, actual.getId());
+        assertEquals("jamila@gmail.com", actual.getEmail());
+        assertNull(actual.getName());
+        assertNull(actual.getAge());
+        verify(resultSet, never()).findColumn(anyString());
+        verify(resultSet, never()).getString(anyString());
+    }
+
+    private static ResultSet customerResultSet() throws SQLException {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.findColumn("id")).thenReturn(1);
+        when(resultSet.findColumn("name")).thenReturn(2);
+        when(resultSet.findColumn("email")).thenReturn(3);
+        when(resultSet.findColumn("age")).thenReturn(4);
+        when(resultSet.findColumn("version")).thenReturn(5);
+        when(resultSet.getInt(1)).thenReturn(1);
+        when(resultSet.getString(2)).thenReturn("Jamila");
+        when(resultSet.getString(3)).thenReturn("jamila@gmail.com");
+        when(resultSet.getInt(4)).thenReturn(19);
+        when(resultSet.getInt(5)).thenReturn(3);
+        return resultSet;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+package com.amigoscode.customer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerSearchIndexTest {
+
+    @Test
+    void findsSubstringsOfNameAndEmailIgnoringCase() {
+        // Given
+        CustomerSearchIndex underTest = new CustomerSearchIndex();
+        underTest.add(1, "Alex Smith", "alex@gmail.com");
+        underTest.add(2, "Ally Jones", "ally@yahoo.com");
+
+        // When
+        // Then
+        assertThat(underTest.candidatesAfter("SMI", 0)).containsExactly(1);
+        assertThat(underTest.candidatesAfter("gmail", 0)).containsExactly(1);
+        assertThat(underTest.candidatesAfter("all", 0)).containsExactly(2);
+        assertThat(underTest.candidatesAfter(".com", 0)).containsExactly(1, 2);
+        assertThat(underTest.candidatesAfter("bob", 0)).isEmpty();
+    }
+
+    @Test
+    void candidatesAreRecheckedAgainstTheCustomer() {
+        // Given
+        CustomerSearchIndex underTest = new CustomerSearchIndex();
+        Customer customer = new Customer(1, "abcx bcd", "x@gmail.com", 20);
+        underTest.add(customer.getId(), customer.getName(), customer.getEmail());
+
+        // When
+        List<Integer> candidates = underTest.candidatesAfter("abcd", 0).toList();
+
+        // Then every trigram of abcd is there, but not next to each other
+        assertThat(candidates).containsExactly(1);
+        assertThat(CustomerSearchIndex.matches(customer, "abcd")).isFalse();
+        assertThat(CustomerSearchIndex.matches(customer, "BCX")).isTrue();
+    }
+
+    @Test
+    void candidatesStartAfterTheCursorInIdOrder() {
+        // Given
+        CustomerSearchIndex underTest = new CustomerSearchIndex();
+        for (int id = 1; id <= 10; id++) {
+            underTest.add(id, "customer " + id, "customer-" + id + "@gmail.com");
+        }
+
+        // When
+        List<Integer> page = underTest.candidatesAfter("gmail", 4).limit(3).toList();
+
+        // Then
+        assertThat(page).containsExactly(5, 6, 7);
+    }
+
+    @Test
+    void removedCustomersAreNoLongerFound() {
+        // Given
+        CustomerSearchIndex underTest = new CustomerSearchIndex();
+        underTest.add(1, "Alex Smith", "alex@gmail.com");
+        underTest.add(2, "Ally Smith", "ally@gmail.com");
+
+        // When
+        underTest.remove(1, "Alex Smith", "alex@gmail.com");
+
+        // Then
+        assertThat(underTest.candidatesAfter("smith", 0)).containsExactly(2);
+        assertThat(underTest.candidatesAfter("alex", 0)).isEmpty();
+    }
+
+    @Test
+    void queriesShorterThanATrigramAreRejected() {
+        // Given
+        CustomerSearchIndex underTest = new CustomerSearchIndex();
+
+        // When
+        // Then
+        assertThatThrownBy(() -> underTest.candidatesAfter("al", 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
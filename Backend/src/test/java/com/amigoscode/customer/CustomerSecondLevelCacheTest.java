@@ -0,0 +1,203 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.AbstractTestContainerUnitTest;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// no test transaction, the cache only sees what commits
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CustomerSecondLevelCacheConfig.class, CustomerJpaDataAccessAndService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CustomerSecondLevelCacheTest extends AbstractTestContainerUnitTest {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CustomerJpaDataAccessAndService customerDAO;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void findByIdIsServedFromTheCache() {
+        // given
+        Customer customer = saveCustomer();
+        statistics.clear();
+
+        // when
+        customerRepository.findById(customer.getId());
+        customerRepository.findById(customer.getId());
+
+        // then
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void existsQueriesAreServedFromTheQueryCache() {
+        // given
+        Customer customer = saveCustomer();
+        customerRepository.existsCustomerByEmail(customer.getEmail());
+        customerRepository.existsCustomerById(customer.getId());
+        statistics.clear();
+
+        // when
+        boolean existsByEmail = customerRepository.existsCustomerByEmail(customer.getEmail());
+        boolean existsById = customerRepository.existsCustomerById(customer.getId());
+
+        // then
+        assertThat(existsByEmail).isTrue();
+        assertThat(existsById).isTrue();
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(2);
+        assertThat(statistics.getQueryExecutionCount()).isZero();
+    }
+
+    @Test
+    void anUpdateIsVisibleThroughTheCaches() {
+        // given
+        Customer customer = saveCustomer();
+        String oldEmail = customer.getEmail();
+        String newEmail = "updated-" + oldEmail;
+        customerRepository.findById(customer.getId());
+        customerRepository.existsCustomerByEmail(oldEmail);
+        customerRepository.existsCustomerByEmail(newEmail);
+
+        // when
+        customerDAO.updateCustomer(new Customer(customer.getId(), "Updated", newEmail, 42, customer.getVersion()));
+
+        // then
+        Customer actual = customerRepository.findById(customer.getId()).orElseThrow();
+        assertThat(actual.getName()).isEqualTo("Updated");
+        assertThat(actual.getEmail()).isEqualTo(newEmail);
+        assertThat(actual.getAge()).isEqualTo(42);
+        assertThat(actual.getVersion()).isEqualTo(customer.getVersion() + 1);
+        assertThat(customerRepository.existsCustomerByEmail(oldEmail)).isFalse();
+        assertThat(customerRepository.existsCustomerByEmail(newEmail)).isTrue();
+    }
+
+    @Test
+    void aDeleteIsVisibleThroughTheCaches() {
+        // given
+        Customer customer = saveCustomer();
+        customerRepository.findById(customer.getId());
+        customerRepository.existsCustomerById(customer.getId());
+        customerRepository.existsCustomerByEmail(customer.getEmail());
+
+        // when
+        customerDAO.deleteCustomer(customer.getId());
+
+        // then
+        assertThat(customerRepository.findById(customer.getId())).isEmpty();
+        assertThat(customerRepository.existsCustomerById(customer.getId())).isFalse();
+        assertThat(customerRepository.existsCustomerByEmail(customer.getEmail())).isFalse();
+    }
+
+    @Test
+    void anUpdateKeepsOtherCustomersCached() {
+        // given
+        Customer customer = saveCustomer();
+        Customer other = saveCustomer();
+        customerRepository.findById(other.getId());
+
+        // when
+        customerDAO.updateCustomer(new Customer(customer.getId(), "Updated", null, null, customer.getVersion()));
+        statistics.clear();
+        customerRepository.findById(other.getId());
+
+        // then
+        assertThat(statistics.getSecondLevelCacheHitCount()).isOne();
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void aDeleteKeepsOtherCustomersCached() {
+        // given
+        Customer customer = saveCustomer();
+        Customer other = saveCustomer();
+        customerRepository.findById(other.getId());
+
+        // when
+        customerDAO.deleteCustomer(customer.getId());
+        statistics.clear();
+        customerRepository.findById(other.getId());
+
+        // then
+        assertThat(statistics.getSecondLevelCacheHitCount()).isOne();
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void anUpdateOfAStaleVersionIsRejected() {
+        // given
+        Customer customer = saveCustomer();
+        customerDAO.updateCustomer(new Customer(customer.getId(), "Updated", null, null, customer.getVersion()));
+
+        // when
+        // then
+        assertThatThrownBy(() -> customerDAO.updateCustomer(
+                new Customer(customer.getId(), "Stale", null, null, customer.getVersion())
+        )).isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(customerRepository.findById(customer.getId()))
+                .hasValueSatisfying(c -> assertThat(c.getName()).isEqualTo("Updated"));
+    }
+
+    @Test
+    void aCustomerDeletedByAnotherWriterIsNotFound() {
+        // given a cached customer that another writer deletes behind the cache
+        Customer customer = saveCustomer();
+        customerRepository.findById(customer.getId());
+        getJdbcTemplate().update("DELETE FROM customer WHERE id = ?", customer.getId());
+
+        // when
+        boolean updated = customerDAO.updateCustomer(
+                new Customer(customer.getId(), "Updated", null, null, customer.getVersion()));
+        boolean deleted = customerDAO.deleteCustomer(customer.getId());
+
+        // then
+        assertThat(updated).isFalse();
+        assertThat(deleted).isFalse();
+        assertThat(customerRepository.findById(customer.getId())).isEmpty();
+    }
+
+    @Test
+    void anInsertIsVisibleToACachedExistsQuery() {
+        // given
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        customerRepository.existsCustomerByEmail(email);
+
+        // when
+        customerRepository.save(new Customer(FAKER.name().fullName(), email, 20));
+
+        // then
+        assertThat(customerRepository.existsCustomerByEmail(email)).isTrue();
+    }
+
+    private Customer saveCustomer() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        return customerRepository.save(new Customer(FAKER.name().fullName(), email, 20));
+    }
+}
@@ -2,16 +2,23 @@ package com.amigoscode.customer;
 
 import com.amigoscode.exception.CustomerNotFoundException;
 import com.amigoscode.exception.DublicateResourceException;
+import com.amigoscode.exception.PreconditionFailedException;
 import com.amigoscode.exception.RequestValidationException;
 import com.amigoscode.exception.ResourceNotFoundException;
+import com.amigoscode.exception.UpdateConflictException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -22,11 +29,15 @@ class CustomerServiceTest {
 
     @Mock
     private CustomerDAO customerDAO;
+    @Mock
+    private CustomerJDBCDataAccessAndService customerEmails;
+    private CustomerEmailFilter customerEmailFilter;
     private CustomerService serviceUnderTest;
 
     @BeforeEach
     void setUp() {
-        serviceUnderTest = new CustomerService(customerDAO);
+        customerEmailFilter = new CustomerEmailFilter(1000, 0.01);
+        serviceUnderTest = new CustomerService(customerDAO, customerEmailFilter, customerEmails);
     }
 
     @Test
@@ -38,6 +49,132 @@ class CustomerServiceTest {
         verify(customerDAO).selectAllCustomers();
     }
 
+    @Test
+    void getCustomersReturnsNextCursorWhenMoreRowsExist() {
+        // Given
+        Customer alex = new Customer(1, "Alex", "alex@gmail.com", 19);
+        Customer ally = new Customer(2, "Ally", "ally@gmail.com", 21);
+        Customer anna = new Customer(3, "Anna", "anna@gmail.com", 23);
+
+        when(customerDAO.selectCustomersAfter(0, 3)).thenReturn(List.of(alex, ally, anna));
+
+        // When
+        CustomerPage actual = serviceUnderTest.getCustomers(null, 2);
+
+        // Then
+        assertThat(actual.customers()).containsExactly(alex, ally);
+        assertThat(actual.nextCursor()).isEqualTo(CustomerCursor.ofId(2).encode());
+    }
+
+    @Test
+    void getCustomersReturnsNoCursorOnLastPage() {
+        // Given
+        Customer anna = new Customer(3, "Anna", "anna@gmail.com", 23);
+
+        when(customerDAO.selectCustomersAfter(2, 3)).thenReturn(List.of(anna));
+
+        // When
+        CustomerPage actual = serviceUnderTest.getCustomers(CustomerCursor.ofId(2).encode(), 2);
+
+        // Then
+        assertThat(actual.customers()).containsExactly(anna);
+        assertThat(actual.nextCursor()).isNull();
+    }
+
+    @Test
+    void getCustomersWithAFilterUsesTheFilteredQuery() {
+        // Given
+        CustomerFilter filter = new CustomerFilter(18, 30, null, CustomerSort.AGE, true);
+        Customer ally = new Customer(2, "Ally", "ally@gmail.com", 21);
+
+        CustomerCursor after = new CustomerCursor(CustomerSort.AGE, 25, 7);
+
+        when(customerDAO.selectCustomers(filter, CustomerField.ALL, after, 3)).thenReturn(List.of(ally));
+
+        // When
+        CustomerPage actual = serviceUnderTest.getCustomers(after.encode(), 2, filter);
+
+        // Then
+        assertThat(actual.customers()).containsExactly(ally);
+        verify(customerDAO, never()).selectCustomersAfter(anyInt(), anyInt());
+    }
+
+    @Test
+    void getCustomersWithFieldsUsesTheProjectedQuery() {
+        // Given
+        Set<CustomerField> fields = CustomerField.parse("email");
+        Customer alex = new Customer();
+        alex.setId(1);
+        alex.setEmail("alex@gmail.com");
+
+        when(customerDAO.selectCustomers(CustomerFilter.NONE, fields, null, 3)).thenReturn(List.of(alex));
+
+        // When
+        CustomerPage actual = serviceUnderTest.getCustomers(null, 2, CustomerFilter.NONE, fields);
+
+        // Then
+        assertThat(actual.customers()).containsExactly(alex);
+        verify(customerDAO, never()).selectCustomersAfter(anyInt(), anyInt());
+    }
+
+    @Test
+    void aSortKeyLeftOutOfTheFieldsIsReadForTheCursorOnly() {
+        // Given
+        CustomerFilter filter = new CustomerFilter(null, null, null, CustomerSort.AGE, false);
+        Customer alex = new Customer(1, null, "alex@gmail.com", 19);
+        Customer ally = new Customer(2, null, "ally@gmail.com", 21);
+
+        when(customerDAO.selectCustomers(filter, CustomerField.parse("email,age"), null, 2)).thenReturn(List.of(alex, ally));
+
+        // When
+        CustomerPage actual = serviceUnderTest.getCustomers(null, 1, filter, CustomerField.parse("email"));
+
+        // Then
+        assertThat(actual.customers()).singleElement().satisfies(c -> {
+            assertThat(c.getEmail()).isEqualTo("alex@gmail.com");
+            assertThat(c.getAge()).isNull();
+        });
+        assertThat(actual.nextCursor()).isEqualTo(new CustomerCursor(CustomerSort.AGE, 19, 1).encode());
+    }
+
+    @Test
+    void willThrowWhenPageLimitIsOutOfRange() {
+        // When
+        // Then
+        assertThatThrownBy(() -> serviceUnderTest.getCustomers(null, 0))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessageContaining("limit must be between 1 and");
+
+        verify(customerDAO, never()).selectCustomersAfter(anyInt(), anyInt());
+    }
+
+    @Test
+    void searchCustomersPagesLikeGetCustomers() {
+        // Given
+        Customer alex = new Customer(1, "Alex", "alex@gmail.com", 19);
+        Customer alexa = new Customer(5, "Alexa", "alexa@gmail.com", 21);
+
+        when(customerDAO.searchCustomers("alex", 0, 2)).thenReturn(List.of(alex, alexa));
+
+        // When
+        CustomerPage actual = serviceUnderTest.searchCustomers(" alex ", null, 1);
+
+        // Then
+        assertThat(actual.customers()).containsExactly(alex);
+        assertThat(actual.nextCursor()).isEqualTo(CustomerCursor.ofId(1).encode());
+    }
+
+    @Test
+    void willThrowWhenSearchQueryIsTooShort() {
+        // When
+        // Then
+        assertThatThrownBy(() -> serviceUnderTest.searchCustomers("al ", null, null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessageContaining("search query must be at least");
+
+        verify(customerDAO, never()).searchCustomers(any(), anyInt(), anyInt());
+    }
+
     @Test
     void canGetCustomer() {
         // Given
@@ -59,6 +196,18 @@ class CustomerServiceTest {
         assertThat(actual).isEqualTo(customer);
     }
 
+    @Test
+    void getCollectionVersion() {
+        // Given
+        when(customerDAO.selectCollectionVersion()).thenReturn(7L);
+
+        // When
+        long actual = serviceUnderTest.getCollectionVersion();
+
+        // Then
+        assertThat(actual).isEqualTo(7L);
+    }
+
     @Test
     void willThrowWhenGetCustomerReturnEmptyOptional() {
         // Given
@@ -122,18 +271,144 @@ class CustomerServiceTest {
 
     }
 
+    @Test
+    void addCustomerSkipsEmailLookupWhenFilterRulesItOut() {
+        // Given
+        givenStoredEmails("ally@gmail.com");
+        serviceUnderTest.warmEmailFilter();
+
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                "Alex", "alex@gmail.com", 19
+        );
+
+        // When
+        serviceUnderTest.addCustomer(request);
+
+        // Then
+        verify(customerDAO, never()).existsPersonWithEmail(any());
+        verify(customerDAO).insertCustomer(any());
+        assertThat(customerEmailFilter.mightContain(request.email())).isTrue();
+    }
+
+    @Test
+    void addCustomerChecksDatabaseWhenFilterMightContainEmail() {
+        // Given
+        String email = "ally@gmail.com";
+        givenStoredEmails(email);
+        serviceUnderTest.warmEmailFilter();
+
+        when(customerDAO.existsPersonWithEmail(email)).thenReturn(true);
+
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                "Ally", email, 21
+        );
+
+        // When
+        assertThatThrownBy(() -> serviceUnderTest.addCustomer(request))
+                .isInstanceOf(DublicateResourceException.class)
+                .hasMessage("EMail already taken");
+
+        //Then
+        verify(customerDAO, never()).insertCustomer(any());
+    }
+
+    @Test
+    void willThrowWhenUniqueConstraintRejectsInsert() {
+        // Given
+        String email = "alex@gmail.com";
+
+        when(customerDAO.existsPersonWithEmail(email)).thenReturn(false);
+        doThrow(new DataIntegrityViolationException("customer_email_unique"))
+                .when(customerDAO).insertCustomer(any());
+
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest(
+                "Alex", email, 19
+        );
+
+        // When
+        // Then
+        assertThatThrownBy(() -> serviceUnderTest.addCustomer(request))
+                .isInstanceOf(DublicateResourceException.class)
+                .hasMessage("EMail already taken");
+    }
+
+    @Test
+    void addCustomersReportsDuplicatesPerRow() {
+        // Given
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("Alex", "alex@gmail.com", 19),
+                new CustomerRegistrationRequest("Ally", "ally@gmail.com", 21),
+                new CustomerRegistrationRequest("Alex", "alex@gmail.com", 19)
+        );
+        when(customerDAO.selectExistingEmails(List.of("alex@gmail.com", "ally@gmail.com")))
+                .thenReturn(Set.of("ally@gmail.com"));
+
+        // When
+        List<CustomerRegistrationResult> actual = serviceUnderTest.addCustomers(requests);
+
+        // Then
+        assertThat(actual).extracting(CustomerRegistrationResult::status).containsExactly(
+                CustomerRegistrationResult.Status.REGISTERED,
+                CustomerRegistrationResult.Status.DUPLICATE,
+                CustomerRegistrationResult.Status.DUPLICATE
+        );
+
+        ArgumentCaptor<List<Customer>> captor = ArgumentCaptor.forClass(List.class);
+        verify(customerDAO).insertCustomers(captor.capture());
+        assertThat(captor.getValue()).extracting(Customer::getEmail).containsExactly("alex@gmail.com");
+        verify(customerDAO, never()).existsPersonWithEmail(any());
+    }
+
+    @Test
+    void addCustomersLooksUpEmailsTheFilterRulesOut() {
+        // Given another instance registered alex, this node's filter never saw it
+        givenStoredEmails();
+        serviceUnderTest.warmEmailFilter();
+        when(customerDAO.selectExistingEmails(List.of("alex@gmail.com", "ally@gmail.com")))
+                .thenReturn(Set.of("alex@gmail.com"));
+
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest("Alex", "alex@gmail.com", 19),
+                new CustomerRegistrationRequest("Ally", "ally@gmail.com", 21)
+        );
+
+        // When
+        List<CustomerRegistrationResult> actual = serviceUnderTest.addCustomers(requests);
+
+        // Then
+        assertThat(actual).extracting(CustomerRegistrationResult::status).containsExactly(
+                CustomerRegistrationResult.Status.DUPLICATE,
+                CustomerRegistrationResult.Status.REGISTERED
+        );
+        ArgumentCaptor<List<Customer>> captor = ArgumentCaptor.forClass(List.class);
+        verify(customerDAO).insertCustomers(captor.capture());
+        assertThat(captor.getValue()).extracting(Customer::getEmail).containsExactly("ally@gmail.com");
+    }
+
+    @Test
+    void willThrowWhenBulkRegistrationIsEmpty() {
+        // When
+        // Then
+        assertThatThrownBy(() -> serviceUnderTest.addCustomers(List.of()))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessageContaining("bulk registration takes between 1 and");
+
+        verify(customerDAO, never()).insertCustomers(any());
+    }
+
     @Test
     void deleteCustomer() {
         // Given
         int id = 10;
 
-        when(customerDAO.existsCustomerWithId(id)).thenReturn(true);
+        when(customerDAO.deleteCustomer(id)).thenReturn(true);
 
         // When
         serviceUnderTest.deleteCustomer(id);
 
         // Then
         verify(customerDAO).deleteCustomer(id);
+        verify(customerDAO, never()).existsCustomerWithId(id);
     }
 
     @Test
@@ -141,7 +416,7 @@ class CustomerServiceTest {
         // Given
         int id = 10;
 
-        when(customerDAO.existsCustomerWithId(id)).thenReturn(false);
+        when(customerDAO.deleteCustomer(id)).thenReturn(false);
 
         // When
         assertThatThrownBy(() -> serviceUnderTest.deleteCustomer(id))
@@ -150,7 +425,7 @@ class CustomerServiceTest {
 
 
         // Then
-        verify(customerDAO, never()).deleteCustomer(id);
+        verify(customerDAO, never()).existsCustomerWithId(id);
     }
 
 
@@ -173,6 +448,8 @@ class CustomerServiceTest {
 
         when(customerDAO.existsPersonWithEmail(newEmail)).thenReturn(false);
 
+        when(customerDAO.updateCustomer(any())).thenReturn(true);
+
         // when
         serviceUnderTest.updateCustomer(id, updateRequest);
 
@@ -203,6 +480,8 @@ class CustomerServiceTest {
         );
 
 
+        when(customerDAO.updateCustomer(any())).thenReturn(true);
+
         // when
         serviceUnderTest.updateCustomer(id, updateRequest);
 
@@ -212,8 +491,8 @@ class CustomerServiceTest {
         Customer actual = argumentCaptor.getValue();
 
         assertThat(actual.getName()).isEqualTo(updateRequest.name());
-        assertThat(actual.getEmail()).isEqualTo(customer.getEmail());
-        assertThat(actual.getAge()).isEqualTo(customer.getAge());
+        assertThat(actual.getEmail()).isNull();
+        assertThat(actual.getAge()).isNull();
 
     }
 
@@ -235,6 +514,8 @@ class CustomerServiceTest {
 
         when(customerDAO.existsPersonWithEmail(newEmail)).thenReturn(false);
 
+        when(customerDAO.updateCustomer(any())).thenReturn(true);
+
         // when
         serviceUnderTest.updateCustomer(id, updateRequest);
 
@@ -243,9 +524,9 @@ class CustomerServiceTest {
         verify(customerDAO).updateCustomer(argumentCaptor.capture());
         Customer actual = argumentCaptor.getValue();
 
-        assertThat(actual.getName()).isEqualTo(customer.getName());
+        assertThat(actual.getName()).isNull();
         assertThat(actual.getEmail()).isEqualTo(newEmail);
-        assertThat(actual.getAge()).isEqualTo(customer.getAge());
+        assertThat(actual.getAge()).isNull();
 
     }
 
@@ -264,6 +545,8 @@ class CustomerServiceTest {
                 null,null, 12
         );
 
+        when(customerDAO.updateCustomer(any())).thenReturn(true);
+
         // when
         serviceUnderTest.updateCustomer(id, updateRequest);
 
@@ -272,12 +555,36 @@ class CustomerServiceTest {
         verify(customerDAO).updateCustomer(argumentCaptor.capture());
         Customer actual = argumentCaptor.getValue();
 
-        assertThat(actual.getName()).isEqualTo(customer.getName());
-        assertThat(actual.getEmail()).isEqualTo(customer.getEmail());
+        assertThat(actual.getName()).isNull();
+        assertThat(actual.getEmail()).isNull();
         assertThat(actual.getAge()).isEqualTo(updateRequest.age());
 
     }
 
+    @Test
+    void updateCustomerOnlyWritesFieldsThatDiffer() {
+        // Given
+        int id = 10;
+        Customer customer = new Customer(id, "Alex", "alex@gmail.com", 19, 4);
+        when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        when(customerDAO.updateCustomer(any())).thenReturn(true);
+
+        // when
+        serviceUnderTest.updateCustomer(id, new CustomerUpdateRequest("Alex", "alex@gmail.com", 20));
+
+        // Then
+        ArgumentCaptor<Customer> argumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerDAO).updateCustomer(argumentCaptor.capture());
+        Customer actual = argumentCaptor.getValue();
+
+        assertThat(actual.getId()).isEqualTo(id);
+        assertThat(actual.getName()).isNull();
+        assertThat(actual.getEmail()).isNull();
+        assertThat(actual.getAge()).isEqualTo(20);
+        assertThat(actual.getVersion()).isEqualTo(4);
+        verify(customerDAO, never()).existsPersonWithEmail(any());
+    }
+
 
     @Test
     void willThrowWhenTryingToUpdateCustomerEmailWhenAlreadyTaken() {
@@ -333,4 +640,139 @@ class CustomerServiceTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    void willThrowPreconditionFailedWhenTheVersionedUpdateMissesTheIfMatchVersion() {
+        // Given
+        int id = 10;
+        Customer customer = new Customer(id, "Alex", "alex@gmail.com", 19, 3);
+        when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        doThrow(new OptimisticLockingFailureException("stale")).when(customerDAO).updateCustomer(any());
+
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest("Alexandro", null, null);
+
+        // when
+        assertThatThrownBy(() -> serviceUnderTest.updateCustomer(id, updateRequest, 2))
+                .isInstanceOf(PreconditionFailedException.class);
+
+        // Then
+        ArgumentCaptor<Customer> argumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerDAO).updateCustomer(argumentCaptor.capture());
+        assertThat(argumentCaptor.getValue().getVersion()).isEqualTo(2);
+    }
+
+    @Test
+    void updateCustomerTrustsTheDatabaseOverAStaleCachedCopy() {
+        // Given the cache still holds version 3, the client already read version 4
+        int id = 10;
+        Customer customer = new Customer(id, "Alex", "alex@gmail.com", 19, 3);
+        when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        when(customerDAO.updateCustomer(any())).thenReturn(true);
+
+        // when
+        serviceUnderTest.updateCustomer(id, new CustomerUpdateRequest("Alex", "alex@gmail.com", 20), 4);
+
+        // Then the request is not diffed against the stale copy
+        ArgumentCaptor<Customer> argumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerDAO).updateCustomer(argumentCaptor.capture());
+        Customer actual = argumentCaptor.getValue();
+
+        assertThat(actual.getName()).isEqualTo("Alex");
+        assertThat(actual.getEmail()).isEqualTo("alex@gmail.com");
+        assertThat(actual.getAge()).isEqualTo(20);
+        assertThat(actual.getVersion()).isEqualTo(4);
+        verify(customerDAO, never()).existsPersonWithEmail(any());
+    }
+
+    @Test
+    void updateCustomerWritesTheVersionItRead() {
+        // Given
+        int id = 10;
+        Customer customer = new Customer(id, "Alex", "alex@gmail.com", 19, 3);
+        when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
+
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest("Alexandro", null, null);
+
+        when(customerDAO.updateCustomer(any())).thenReturn(true);
+
+        // when
+        serviceUnderTest.updateCustomer(id, updateRequest, 3);
+
+        // Then
+        ArgumentCaptor<Customer> argumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerDAO).updateCustomer(argumentCaptor.capture());
+        assertThat(argumentCaptor.getValue().getVersion()).isEqualTo(3);
+    }
+
+    @Test
+    void willThrowPreconditionFailedWhenIfMatchLosesARace() {
+        // Given
+        int id = 10;
+        Customer customer = new Customer(id, "Alex", "alex@gmail.com", 19, 3);
+        when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        doThrow(new OptimisticLockingFailureException("stale")).when(customerDAO).updateCustomer(any());
+
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest("Alexandro", null, null);
+
+        // when
+        // Then
+        assertThatThrownBy(() -> serviceUnderTest.updateCustomer(id, updateRequest, 3))
+                .isInstanceOf(PreconditionFailedException.class);
+    }
+
+    @Test
+    void willThrowConflictWhenAConcurrentUpdateWins() {
+        // Given
+        int id = 10;
+        Customer customer = new Customer(id, "Alex", "alex@gmail.com", 19, 3);
+        when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        doThrow(new OptimisticLockingFailureException("stale")).when(customerDAO).updateCustomer(any());
+
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest("Alexandro", null, null);
+
+        // when
+        // Then
+        assertThatThrownBy(() -> serviceUnderTest.updateCustomer(id, updateRequest))
+                .isInstanceOf(UpdateConflictException.class);
+    }
+
+    @Test
+    void willThrowWhenCustomerIsDeletedBeforeTheUpdate() {
+        // Given
+        int id = 10;
+        Customer customer = new Customer(id, "Alex", "alex@gmail.com", 19);
+        when(customerDAO.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        when(customerDAO.updateCustomer(any())).thenReturn(false);
+
+        CustomerUpdateRequest updateRequest = new CustomerUpdateRequest("Alexandro", null, null);
+
+        // when
+        // Then
+        assertThatThrownBy(() -> serviceUnderTest.updateCustomer(id, updateRequest))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("customer with id %s is not found".formatted(id));
+    }
+
+
+    @Test
+    void warmEmailFilterReadsOnlyTheEmails() {
+        // Given
+        givenStoredEmails("alex@gmail.com", "ally@gmail.com");
+
+        // When
+        serviceUnderTest.warmEmailFilter();
+
+        // Then
+        assertThat(customerEmailFilter.isWarm()).isTrue();
+        assertThat(customerEmailFilter.mightContain("alex@gmail.com")).isTrue();
+        assertThat(customerEmailFilter.mightContain("ally@gmail.com")).isTrue();
+        verifyNoInteractions(customerDAO);
+    }
+
+    private void givenStoredEmails(String... emails) {
+        doAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(0);
+            List.of(emails).forEach(consumer);
+            return null;
+        }).when(customerEmails).streamAllEmails(any());
+    }
+}
@@ -0,0 +1,204 @@
+package com.amigoscode.customer;
+
+import com.amigoscode.exception.CustomerNotFoundException;
+import com.amigoscode.exception.DublicateResourceException;
+import com.amigoscode.exception.PreconditionFailedException;
+import com.amigoscode.exception.RequestValidationException;
+import com.amigoscode.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveCustomerServiceTest {
+
+    @Mock
+    private ReactiveCustomerDAO customerDAO;
+    private CustomerEmailFilter customerEmailFilter;
+    private ReactiveCustomerService serviceUnderTest;
+
+    @BeforeEach
+    void setUp() {
+        customerEmailFilter = new CustomerEmailFilter(1000, 0.01);
+        serviceUnderTest = new ReactiveCustomerService(customerDAO, customerEmailFilter);
+    }
+
+    @Test
+    void getCustomersReturnsNextCursorWhenMoreRowsExist() {
+        // Given
+        Customer alex = new Customer(1, "Alex", "alex@gmail.com", 19);
+        Customer ally = new Customer(2, "Ally", "ally@gmail.com", 21);
+        Customer anna = new Customer(3, "Anna", "anna@gmail.com", 23);
+        when(customerDAO.selectCustomersAfter(0, 3)).thenReturn(Flux.just(alex, ally, anna));
+
+        // When
+        CustomerPage actual = serviceUnderTest.getCustomers(null, 2).block();
+
+        // Then
+        assertThat(actual.customers()).containsExactly(alex, ally);
+        assertThat(actual.nextCursor()).isEqualTo(CustomerCursor.ofId(2).encode());
+    }
+
+    @Test
+    void getCustomersRejectsAnOutOfRangeLimitLazily() {
+        // When
+        Mono<CustomerPage> actual = serviceUnderTest.getCustomers(null, CustomerService.MAX_PAGE_SIZE + 1);
+
+        // Then
+        assertThatThrownBy(actual::block).isInstanceOf(RequestValidationException.class);
+        verifyNoInteractions(customerDAO);
+    }
+
+    @Test
+    void willThrowWhenGetCustomerReturnEmpty() {
+        // Given
+        when(customerDAO.selectCustomerById(10)).thenReturn(Mono.empty());
+
+        // When
+        // Then
+        assertThatThrownBy(() -> serviceUnderTest.getCustomer(10).block())
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessage("customer with id 10 is not found");
+    }
+
+    @Test
+    void addCustomer() {
+        // Given
+        String email = "alex@gmail.com";
+        when(customerDAO.existsPersonWithEmail(email)).thenReturn(Mono.just(false));
+        when(customerDAO.insertCustomer(any())).thenReturn(Mono.empty());
+
+        // When
+        serviceUnderTest.addCustomer(new CustomerRegistrationRequest("Alex", email, 19)).block();
+
+        // Then
+        ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerDAO).insertCustomer(customerArgumentCaptor.capture());
+        assertThat(customerArgumentCaptor.getValue().getEmail()).isEqualTo(email);
+    }
+
+    @Test
+    void addCustomerMapsAUniqueViolationToAConflict() {
+        // Given
+        String email = "alex@gmail.com";
+        when(customerDAO.existsPersonWithEmail(email)).thenReturn(Mono.just(false));
+        when(customerDAO.insertCustomer(any())).thenReturn(Mono.error(new DuplicateKeyException("customer_email_unique")));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> serviceUnderTest.addCustomer(new CustomerRegistrationRequest("Alex", email, 19)).block())
+                .isInstanceOf(DublicateResourceException.class)
+                .hasMessage("EMail already taken");
+    }
+
+    @Test
+    void addCustomersReportsDuplicatesPerRow() {
+        // Given
+        when(customerDAO.selectExistingEmails(any())).thenReturn(Flux.just("alex@gmail.com"));
+        when(customerDAO.insertCustomers(any())).thenReturn(Mono.empty());
+
+        // When
+        List<CustomerRegistrationResult> actual = serviceUnderTest.addCustomers(List.of(
+                new CustomerRegistrationRequest("Alex", "alex@gmail.com", 19),
+                new CustomerRegistrationRequest("Ally", "ally@gmail.com", 21)
+        )).block();
+
+        // Then
+        assertThat(actual).extracting(CustomerRegistrationResult::status).containsExactly(
+                CustomerRegistrationResult.Status.DUPLICATE,
+                CustomerRegistrationResult.Status.REGISTERED
+        );
+    }
+
+    @Test
+    void addCustomersLooksUpEmailsTheFilterRulesOut() {
+        // Given another instance registered alex, this node's filter never saw it
+        customerEmailFilter.markWarm();
+        when(customerDAO.selectExistingEmails(List.of("alex@gmail.com"))).thenReturn(Flux.just("alex@gmail.com"));
+        when(customerDAO.insertCustomers(List.of())).thenReturn(Mono.empty());
+
+        // When
+        List<CustomerRegistrationResult> actual = serviceUnderTest.addCustomers(List.of(
+                new CustomerRegistrationRequest("Alex", "alex@gmail.com", 19)
+        )).block();
+
+        // Then
+        assertThat(actual).extracting(CustomerRegistrationResult::status)
+                .containsExactly(CustomerRegistrationResult.Status.DUPLICATE);
+    }
+
+    @Test
+    void willThrowDeleteCustomerByIdNotExists() {
+        // Given
+        when(customerDAO.deleteCustomer(10)).thenReturn(Mono.just(false));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> serviceUnderTest.deleteCustomer(10).block())
+                .isInstanceOf(CustomerNotFoundException.class)
+                .hasMessage("Customer id 10 not found");
+        verify(customerDAO, never()).existsCustomerWithId(any());
+    }
+
+    @Test
+    void willThrowWhenUpdateHasNoChanges() {
+        // Given
+        Customer customer = new Customer(10, "Alex", "alex@gmail.com", 19);
+        when(customerDAO.selectCustomerById(10)).thenReturn(Mono.just(customer));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> serviceUnderTest.updateCustomer(10, new CustomerUpdateRequest("Alex", null, 19)).block())
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("No data changes found");
+        verify(customerDAO, never()).updateCustomer(any());
+    }
+
+    @Test
+    void willThrowPreconditionFailedWhenTheVersionedUpdateMissesTheIfMatchVersion() {
+        // Given
+        Customer customer = new Customer(10, "Alex", "alex@gmail.com", 19, 3);
+        when(customerDAO.selectCustomerById(10)).thenReturn(Mono.just(customer));
+        when(customerDAO.updateCustomer(any())).thenReturn(Mono.error(new OptimisticLockingFailureException("stale")));
+
+        // When
+        // Then
+        assertThatThrownBy(() -> serviceUnderTest.updateCustomer(10, new CustomerUpdateRequest("Alexandro", null, null), 2).block())
+                .isInstanceOf(PreconditionFailedException.class);
+        ArgumentCaptor<Customer> argumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerDAO).updateCustomer(argumentCaptor.capture());
+        assertThat(argumentCaptor.getValue().getVersion()).isEqualTo(2);
+    }
+
+    @Test
+    void updateCustomerTrustsTheDatabaseOverAStaleCachedCopy() {
+        // Given the cache still holds version 3, the client already read version 4
+        Customer customer = new Customer(10, "Alex", "alex@gmail.com", 19, 3);
+        when(customerDAO.selectCustomerById(10)).thenReturn(Mono.just(customer));
+        when(customerDAO.updateCustomer(any())).thenReturn(Mono.just(true));
+
+        // When
+        serviceUnderTest.updateCustomer(10, new CustomerUpdateRequest("Alex", null, 20), 4).block();
+
+        // Then
+        ArgumentCaptor<Customer> argumentCaptor = ArgumentCaptor.forClass(Customer.class);
+        verify(customerDAO).updateCustomer(argumentCaptor.capture());
+        assertThat(argumentCaptor.getValue().getName()).isEqualTo("Alex");
+        assertThat(argumentCaptor.getValue().getAge()).isEqualTo(20);
+        assertThat(argumentCaptor.getValue().getVersion()).isEqualTo(4);
+    }
+}
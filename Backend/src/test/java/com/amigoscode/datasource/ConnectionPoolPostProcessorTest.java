@@ -0,0 +1,102 @@
+package com.amigoscode.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConnectionPoolPostProcessorTest {
+
+    private static final int AVAILABLE_PROCESSORS = 4;
+
+    @Test
+    void sizesThePoolFromTheCores() {
+        // Given
+        ConnectionPoolPostProcessor underTest = postProcessor(new ConnectionPoolProperties(
+                null, 2, 1, null, null, Duration.ofSeconds(3)
+        ));
+        HikariDataSource dataSource = new HikariDataSource();
+
+        // When
+        underTest.postProcessAfterInitialization(dataSource, "dataSource");
+
+        // Then
+        assertThat(dataSource.getMaximumPoolSize()).isEqualTo(9);
+        assertThat(dataSource.getMinimumIdle()).isEqualTo(9);
+        assertThat(dataSource.getConnectionTimeout()).isEqualTo(3000);
+    }
+
+    @Test
+    void databaseCoresAndAnExplicitSizeWinOverTheFormula() {
+        // Given
+        HikariDataSource databaseCores = new HikariDataSource();
+        HikariDataSource explicit = new HikariDataSource();
+
+        // When
+        postProcessor(new ConnectionPoolProperties(16, 2, 0, null, 8, Duration.ofSeconds(30)))
+                .postProcessAfterInitialization(databaseCores, "primaryDataSource");
+        postProcessor(new ConnectionPoolProperties(16, 2, 0, 5, null, Duration.ofSeconds(30)))
+                .postProcessAfterInitialization(explicit, "replicaDataSource");
+
+        // Then
+        assertThat(databaseCores.getMaximumPoolSize()).isEqualTo(32);
+        assertThat(databaseCores.getMinimumIdle()).isEqualTo(8);
+        assertThat(explicit.getMaximumPoolSize()).isEqualTo(5);
+    }
+
+    @Test
+    void leavesOtherBeansAlone() {
+        // Given
+        ConnectionPoolPostProcessor underTest = postProcessor(new ConnectionPoolProperties(
+                null, 2, 1, null, null, Duration.ofSeconds(30)
+        ));
+        Object bean = new Object();
+
+        // When
+        Object actual = underTest.postProcessAfterInitialization(bean, "other");
+
+        // Then
+        assertThat(actual).isSameAs(bean);
+    }
+
+    @Test
+    void rejectsAnInvalidPoolModel() {
+        assertThatThrownBy(() -> new ConnectionPoolProperties(0, 2, 1, null, null, Duration.ofSeconds(30)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("cores must be at least 1, was 0");
+        assertThatThrownBy(() -> new ConnectionPoolProperties(null, 0, 1, null, null, Duration.ofSeconds(30)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("connections-per-core must be at least 1, was 0");
+        assertThatThrownBy(() -> new ConnectionPoolProperties(null, 2, 1, null, null, Duration.ofMillis(100)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("connection-timeout must be at least");
+
+        assertThatThrownBy(() -> new ConnectionPoolProperties(null, 2, 1, 1, null, Duration.ofSeconds(30)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("maximum-size must be at least 2, was 1");
+
+        ConnectionPoolPostProcessor singleConnection = postProcessor(new ConnectionPoolProperties(
+                1, 1, 0, null, null, Duration.ofSeconds(30)
+        ));
+        assertThatThrownBy(() -> singleConnection.postProcessAfterInitialization(new HikariDataSource(), "dataSource"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("pool size 1 is below 2, raise connections-per-core or effective-spindle-count");
+
+        ConnectionPoolPostProcessor idleAboveSize = postProcessor(new ConnectionPoolProperties(
+                1, 2, 0, null, 3, Duration.ofSeconds(30)
+        ));
+        assertThatThrownBy(() -> idleAboveSize.postProcessAfterInitialization(new HikariDataSource(), "dataSource"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("minimum-idle 3 is above the pool size 2");
+    }
+
+    private static ConnectionPoolPostProcessor postProcessor(ConnectionPoolProperties properties) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("connectionPoolProperties", properties);
+        return new ConnectionPoolPostProcessor(beanFactory.getBeanProvider(ConnectionPoolProperties.class), AVAILABLE_PROCESSORS);
+    }
+}
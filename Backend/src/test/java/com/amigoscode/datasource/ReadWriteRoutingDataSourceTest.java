@@ -0,0 +1,141 @@
+package com.amigoscode.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// the two pools are stand-ins handing out mock connections, what is under test is which one gets asked
+class ReadWriteRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica;
+    private DataSource dataSource;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = pool();
+        replica = pool();
+        // the same wiring as ReplicaDataSourceConfig
+        dataSource = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica));
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+        // the proxy reads the connection defaults from the primary on its first connection
+        dataSource.getConnection().close();
+        clearInvocations(primary, replica);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReadYourWrites.end();
+    }
+
+    @Test
+    void readOnlyTransactionsUseTheReplica() throws SQLException {
+        // When
+        readOnly.executeWithoutResult(status -> useConnection());
+
+        // Then
+        verify(replica).getConnection();
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void writeTransactionsUseThePrimary() throws SQLException {
+        // When
+        readWrite.executeWithoutResult(status -> useConnection());
+
+        // Then
+        verify(primary).getConnection();
+        verify(replica, never()).getConnection();
+    }
+
+    @Test
+    void readsAfterAWriteInTheSameRequestUseThePrimary() throws SQLException {
+        // Given
+        AtomicInteger firstWrites = new AtomicInteger();
+        ReadYourWrites.begin(false, firstWrites::incrementAndGet);
+
+        // When
+        readWrite.executeWithoutResult(status -> useConnection());
+        readOnly.executeWithoutResult(status -> useConnection());
+        readWrite.executeWithoutResult(status -> useConnection());
+
+        // Then
+        verify(replica, never()).getConnection();
+        assertThat(firstWrites).hasValue(1);
+    }
+
+    @Test
+    void readsOfAPinnedRequestUseThePrimary() throws SQLException {
+        // Given
+        ReadYourWrites.begin(true, null);
+
+        // When
+        readOnly.executeWithoutResult(status -> useConnection());
+
+        // Then
+        verify(primary).getConnection();
+        verify(replica, never()).getConnection();
+    }
+
+    @Test
+    void writesOutsideARequestDoNotPinLaterReads() throws SQLException {
+        // When
+        readWrite.executeWithoutResult(status -> useConnection());
+        readOnly.executeWithoutResult(status -> useConnection());
+
+        // Then
+        verify(replica).getConnection();
+    }
+
+    @Test
+    void onPrimaryKeepsReadsOnThePrimaryAndRestoresTheRequest() throws SQLException {
+        // Given
+        ReadYourWrites.begin(false, null);
+
+        // When
+        ReadYourWrites.onPrimary(() -> readOnly.execute(status -> useConnection()));
+        readOnly.executeWithoutResult(status -> useConnection());
+
+        // Then
+        verify(primary).getConnection();
+        verify(replica).getConnection();
+    }
+
+    // the lazy proxy only takes a real connection once a statement is about to run
+    private Connection useConnection() {
+        try {
+            Connection connection = DataSourceUtils.getConnection(dataSource);
+            connection.createStatement();
+            return connection;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static DataSource pool() throws SQLException {
+        DataSource pool = mock(DataSource.class);
+        when(pool.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        return pool;
+    }
+}
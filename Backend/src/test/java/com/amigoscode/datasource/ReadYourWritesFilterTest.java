@@ -0,0 +1,91 @@
+package com.amigoscode.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadYourWritesFilterTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.ofEpochMilli(1_000_000), ZoneOffset.UTC);
+
+    private final ReadYourWritesFilter underTest = new ReadYourWritesFilter(Duration.ofSeconds(5), CLOCK);
+
+    @Test
+    void aWriteSetsTheCookieAndPinsTheRestOfTheRequest() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/customers");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicBoolean pinnedAfterWrite = new AtomicBoolean();
+        FilterChain chain = (req, res) -> {
+            ReadYourWrites.wrote();
+            ReadYourWrites.wrote();
+            pinnedAfterWrite.set(ReadYourWrites.pinnedToPrimary());
+        };
+
+        // When
+        underTest.doFilter(request, response, chain);
+
+        // Then
+        assertThat(pinnedAfterWrite).isTrue();
+        assertThat(response.getHeaders("Set-Cookie")).hasSize(1);
+        Cookie cookie = response.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        assertThat(cookie).isNotNull();
+        assertThat(cookie.getValue()).isEqualTo("1005000");
+        assertThat(cookie.getMaxAge()).isEqualTo(5);
+        assertThat(ReadYourWrites.pinnedToPrimary()).isFalse();
+    }
+
+    @Test
+    void aRecentWritePinsTheNextRequest() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/customers/1");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, "1000001"));
+        AtomicBoolean pinned = new AtomicBoolean();
+
+        // When
+        underTest.doFilter(request, new MockHttpServletResponse(), (req, res) -> pinned.set(ReadYourWrites.pinnedToPrimary()));
+
+        // Then
+        assertThat(pinned).isTrue();
+    }
+
+    @Test
+    void anExpiredOrMalformedCookieDoesNotPin() throws Exception {
+        // Given
+        MockHttpServletRequest expired = new MockHttpServletRequest("GET", "/api/v1/customers/1");
+        expired.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, "1000000"));
+        MockHttpServletRequest malformed = new MockHttpServletRequest("GET", "/api/v1/customers/1");
+        malformed.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, "soon"));
+        AtomicBoolean pinned = new AtomicBoolean();
+        FilterChain chain = (req, res) -> pinned.compareAndSet(false, ReadYourWrites.pinnedToPrimary());
+
+        // When
+        underTest.doFilter(expired, new MockHttpServletResponse(), chain);
+        underTest.doFilter(malformed, new MockHttpServletResponse(), chain);
+
+        // Then
+        assertThat(pinned).isFalse();
+    }
+
+    @Test
+    void aReadOnlyRequestGetsNoCookie() throws Exception {
+        // Given
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        underTest.doFilter(new MockHttpServletRequest("GET", "/api/v1/customers"), response, (req, res) -> { });
+
+        // Then
+        assertThat(response.getCookies()).isEmpty();
+    }
+}
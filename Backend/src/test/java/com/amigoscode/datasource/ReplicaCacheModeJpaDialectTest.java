@@ -0,0 +1,109 @@
+package com.amigoscode.datasource;
+
+import com.amigoscode.AbstractTestContainerUnitTest;
+import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerJpaDataAccessAndService;
+import com.amigoscode.customer.CustomerRepository;
+import com.amigoscode.customer.CustomerSecondLevelCacheConfig;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// no replica here, the dialect only looks at the same read-only flag and pin the routing does
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CustomerSecondLevelCacheConfig.class, CustomerJpaDataAccessAndService.class, ReplicaCacheModePostProcessor.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReplicaCacheModeJpaDialectTest extends AbstractTestContainerUnitTest {
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CustomerJpaDataAccessAndService customerDAO;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void aReadOnlyTransactionDoesNotFillTheCaches() {
+        // given
+        Customer customer = saveUncachedCustomer();
+
+        // when
+        customerDAO.selectCustomersAfter(customer.getId() - 1, 1);
+        customerDAO.selectCustomerById(customer.getId());
+        customerDAO.existsCustomerWithId(customer.getId());
+        customerDAO.selectCustomerById(customer.getId());
+        customerDAO.existsCustomerWithId(customer.getId());
+
+        // then
+        assertThat(statistics.getSecondLevelCachePutCount()).isZero();
+        assertThat(statistics.getQueryCachePutCount()).isZero();
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(3);
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(3);
+    }
+
+    @Test
+    void aReadPinnedToThePrimaryFillsTheCache() {
+        // given
+        Customer customer = saveUncachedCustomer();
+
+        // when
+        ReadYourWrites.onPrimary(() -> customerDAO.selectCustomerById(customer.getId()));
+        customerDAO.selectCustomerById(customer.getId());
+
+        // then
+        assertThat(statistics.getSecondLevelCachePutCount()).isOne();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isOne();
+        assertThat(statistics.getEntityLoadCount()).isOne();
+    }
+
+    @Test
+    void aWriteTransactionFillsTheCache() {
+        // given
+        Customer customer = saveUncachedCustomer();
+
+        // when the read joins a transaction that may write
+        new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> customerDAO.selectCustomerById(customer.getId()));
+        customerDAO.selectCustomerById(customer.getId());
+
+        // then
+        assertThat(statistics.getSecondLevelCacheHitCount()).isOne();
+        assertThat(statistics.getEntityLoadCount()).isOne();
+    }
+
+    private Customer saveUncachedCustomer() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = customerRepository.save(new Customer(FAKER.name().fullName(), email, 20));
+        entityManagerFactory.getCache().evictAll();
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+        statistics.clear();
+        return customer;
+    }
+}
@@ -1,19 +1,28 @@
 package com.amigoscode.journey;
 
 import com.amigoscode.customer.Customer;
+import com.amigoscode.customer.CustomerChange;
+import com.amigoscode.customer.CustomerChangePage;
+import com.amigoscode.customer.CustomerPage;
 import com.amigoscode.customer.CustomerRegistrationRequest;
+import com.amigoscode.customer.CustomerRegistrationResult;
 import com.amigoscode.customer.CustomerUpdateRequest;
 import com.github.javafaker.Faker;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
@@ -25,6 +34,31 @@ public class CustomerIntegrationTest {
     private WebTestClient client;
 
 
+    private List<Customer> getAllCustomers(String customerUri) {
+        List<Customer> customers = new ArrayList<>();
+        String cursor = null;
+        do {
+            String after = cursor;
+            CustomerPage page = client.get()
+                    .uri(uriBuilder -> uriBuilder.path(customerUri)
+                            .queryParamIfPresent("after", Optional.ofNullable(after))
+                            .queryParam("limit", 1000)
+                            .build())
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBody(CustomerPage.class)
+                    .returnResult()
+                    .getResponseBody();
+
+            assert page != null;
+            customers.addAll(page.customers());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return customers;
+    }
+
     @Test
     void canRegisterACustomer() {
         // create a registration request
@@ -50,15 +84,7 @@ public class CustomerIntegrationTest {
 
 
         // get all customers
-        List<Customer> customerList = client.get()
-                .uri(CUSTOMER_URI)
-                .accept(MediaType.APPLICATION_JSON)
-                .exchange()
-                .expectStatus()
-                .isOk()
-                .expectBodyList(new ParameterizedTypeReference<Customer>() {
-                }).returnResult()
-                .getResponseBody();
+        List<Customer> customerList = getAllCustomers(CUSTOMER_URI);
 
         // make sure that customer is present
         Customer expectedCustomer = new Customer(name, email, age);
@@ -112,15 +138,7 @@ public class CustomerIntegrationTest {
 
 
         // get all customers
-        List<Customer> customerList = client.get()
-                .uri(CUSTOMER_URI)
-                .accept(MediaType.APPLICATION_JSON)
-                .exchange()
-                .expectStatus()
-                .isOk()
-                .expectBodyList(new ParameterizedTypeReference<Customer>() {
-                }).returnResult()
-                .getResponseBody();
+        List<Customer> customerList = getAllCustomers(CUSTOMER_URI);
 
         assert customerList != null;
         var id = customerList.stream()
@@ -173,15 +191,7 @@ public class CustomerIntegrationTest {
 
 
         // get all customers
-        List<Customer> customerList = client.get()
-                .uri(CUSTOMER_URI)
-                .accept(MediaType.APPLICATION_JSON)
-                .exchange()
-                .expectStatus()
-                .isOk()
-                .expectBodyList(new ParameterizedTypeReference<Customer>() {
-                }).returnResult()
-                .getResponseBody();
+        List<Customer> customerList = getAllCustomers(CUSTOMER_URI);
 
         assert customerList != null;
         var id = customerList.stream()
@@ -221,4 +231,489 @@ public class CustomerIntegrationTest {
 
         assertThat(updatedCustomer).isEqualTo(expectedCustomer);
     }
+
+    @Test
+    void canExportCustomersAsNdjson() {
+        // create a registration request
+        Faker faker = new Faker();
+        String name = faker.name().fullName();
+        String email = faker.name().lastName()+ "-" + UUID.randomUUID() + "@foobar.com";
+        Integer age = faker.number().numberBetween(0, 100);
+
+        final String CUSTOMER_URI = "/api/v1/customers";
+
+        CustomerRegistrationRequest customerRegistrationRequest = new
+                CustomerRegistrationRequest(name, email, age);
+
+        // send a post request
+
+        client.post()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(Mono.just(customerRegistrationRequest), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // export all customers
+        List<Customer> exported = client.get()
+                .uri(CUSTOMER_URI + "/export")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Customer.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        // make sure that customer is present
+        Customer expectedCustomer = new Customer(name, email, age);
+
+        assertThat(exported)
+                .usingRecursiveFieldByFieldElementComparatorIgnoringFields("id")
+                .contains(expectedCustomer);
+    }
+
+    @Test
+    void canRegisterCustomersInBulk() {
+        // create registration requests, the last one repeats the first email
+        Faker faker = new Faker();
+        String email = faker.name().lastName()+ "-" + UUID.randomUUID() + "@foobar.com";
+        String otherEmail = faker.name().lastName()+ "-" + UUID.randomUUID() + "@foobar.com";
+
+        final String CUSTOMER_URI = "/api/v1/customers";
+
+        List<CustomerRegistrationRequest> requests = List.of(
+                new CustomerRegistrationRequest(faker.name().fullName(), email, 20),
+                new CustomerRegistrationRequest(faker.name().fullName(), otherEmail, 30),
+                new CustomerRegistrationRequest(faker.name().fullName(), email, 40)
+        );
+
+        // send a bulk post request
+        List<CustomerRegistrationResult> results = client.post()
+                .uri(CUSTOMER_URI + "/bulk")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(requests)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(CustomerRegistrationResult.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(results).extracting(CustomerRegistrationResult::status).containsExactly(
+                CustomerRegistrationResult.Status.REGISTERED,
+                CustomerRegistrationResult.Status.REGISTERED,
+                CustomerRegistrationResult.Status.DUPLICATE
+        );
+
+        // make sure both customers are present
+        assertThat(getAllCustomers(CUSTOMER_URI))
+                .extracting(Customer::getEmail)
+                .contains(email, otherEmail);
+    }
+
+    @Test
+    void canRevalidateACustomerWithItsETag() {
+        // create a registration request
+        Faker faker = new Faker();
+        String email = faker.name().lastName()+ "-" + UUID.randomUUID() + "@foobar.com";
+
+        final String CUSTOMER_URI = "/api/v1/customers";
+
+        client.post()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerRegistrationRequest(faker.name().fullName(), email, 20)), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        var id = getAllCustomers(CUSTOMER_URI).stream()
+                .filter(customer -> customer.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+
+        // first read hands out an ETag
+        String eTag = client.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Customer.class)
+                .getResponseHeaders()
+                .getETag();
+        assertThat(eTag).isNotNull();
+
+        // unchanged, so a conditional read is a 304 without a body
+        client.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+
+        // an update bumps the version, the old ETag no longer matches
+        client.put()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest("Nayanthara", null, null)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        client.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .value("ETag", newETag -> assertThat(newETag).isNotEqualTo(eTag));
+    }
+
+    @Test
+    void canUpdateCustomerOnlyWithTheCurrentIfMatch() {
+        // create a registration request
+        Faker faker = new Faker();
+        String email = faker.name().lastName()+ "-" + UUID.randomUUID() + "@foobar.com";
+
+        final String CUSTOMER_URI = "/api/v1/customers";
+
+        client.post()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerRegistrationRequest(faker.name().fullName(), email, 20)), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        var id = getAllCustomers(CUSTOMER_URI).stream()
+                .filter(customer -> customer.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+
+        String eTag = client.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Customer.class)
+                .getResponseHeaders()
+                .getETag();
+
+        // the first writer holding the current ETag wins
+        client.put()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .body(Mono.just(new CustomerUpdateRequest(null, null, 30)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        // a second writer with the same ETag is rejected
+        client.put()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .body(Mono.just(new CustomerUpdateRequest(null, null, 40)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        Customer actual = client.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Customer.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(actual.getAge()).isEqualTo(30);
+    }
+
+    @Test
+    void canFilterAndSortCustomers() {
+        Faker faker = new Faker();
+        String domain = UUID.randomUUID() + ".com";
+
+        final String CUSTOMER_URI = "/api/v1/customers";
+
+        for (int age : new int[]{25, 45, 35}) {
+            client.post()
+                    .uri(CUSTOMER_URI)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .body(Mono.just(new CustomerRegistrationRequest(faker.name().fullName(), age + "@" + domain, age)), CustomerRegistrationRequest.class)
+                    .exchange()
+                    .expectStatus()
+                    .isOk();
+        }
+
+        CustomerPage page = client.get()
+                .uri(CUSTOMER_URI + "?emailDomain={domain}&minAge=30&sort=age&direction=desc", domain)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(CustomerPage.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(page.customers()).extracting(Customer::getAge).containsExactly(45, 35);
+
+        // only the requested fields go over the wire
+        client.get()
+                .uri(CUSTOMER_URI + "?emailDomain={domain}&sort=age&fields=email", domain)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.customers[0].id").isNumber()
+                .jsonPath("$.customers[0].email").isEqualTo("25@" + domain)
+                .jsonPath("$.customers[0].name").doesNotExist()
+                .jsonPath("$.customers[0].age").doesNotExist();
+
+        client.get()
+                .uri(CUSTOMER_URI + "?sort=email")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void aSortedListingContinuesPastADeletedCursorRow() {
+        Faker faker = new Faker();
+        String domain = UUID.randomUUID() + ".com";
+
+        final String CUSTOMER_URI = "/api/v1/customers";
+
+        for (int age : new int[]{25, 45, 35}) {
+            client.post()
+                    .uri(CUSTOMER_URI)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .body(Mono.just(new CustomerRegistrationRequest(faker.name().fullName(), age + "@" + domain, age)), CustomerRegistrationRequest.class)
+                    .exchange()
+                    .expectStatus()
+                    .isOk();
+        }
+
+        // age is left out of the fields, the cursor still carries it
+        CustomerPage first = client.get()
+                .uri(CUSTOMER_URI + "?emailDomain={domain}&sort=age&fields=email&limit=1", domain)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(CustomerPage.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(first.customers()).extracting(Customer::getEmail).containsExactly("25@" + domain);
+        assertThat(first.customers().get(0).getAge()).isNull();
+
+        client.delete()
+                .uri(CUSTOMER_URI + "/{id}", first.customers().get(0).getId())
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        CustomerPage rest = client.get()
+                .uri(CUSTOMER_URI + "?emailDomain={domain}&sort=age&fields=email&after={after}", domain, first.nextCursor())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(CustomerPage.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(rest.customers()).extracting(Customer::getEmail).containsExactly("35@" + domain, "45@" + domain);
+
+        // a cursor from another order does not say where this listing stopped
+        client.get()
+                .uri(CUSTOMER_URI + "?emailDomain={domain}&sort=name&after={after}", domain, first.nextCursor())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void canSearchCustomersByPartOfTheirEmail() {
+        Faker faker = new Faker();
+        String marker = UUID.randomUUID().toString();
+        String email = faker.name().lastName() + "-" + marker + "@foobar.com";
+
+        final String CUSTOMER_URI = "/api/v1/customers";
+
+        client.post()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerRegistrationRequest(faker.name().fullName(), email, 20)), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        CustomerPage page = client.get()
+                .uri(CUSTOMER_URI + "/search?q={q}", marker.toUpperCase())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(CustomerPage.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(page.customers()).extracting(Customer::getEmail).containsExactly(email);
+        assertThat(page.nextCursor()).isNull();
+
+        // too short to narrow down with the trigram index
+        client.get()
+                .uri(CUSTOMER_URI + "/search?q={q}", "ab")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void canRevalidateTheCustomerListWithItsETag() {
+        final String CUSTOMER_URI = "/api/v1/customers";
+
+        String eTag = client.get()
+                .uri(CUSTOMER_URI + "?limit=1")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(CustomerPage.class)
+                .getResponseHeaders()
+                .getETag();
+        assertThat(eTag).isNotNull();
+
+        client.get()
+                .uri(CUSTOMER_URI + "?limit=1")
+                .accept(MediaType.APPLICATION_JSON)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isNotModified();
+
+        // any write moves the collection watermark
+        Faker faker = new Faker();
+        client.post()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerRegistrationRequest(
+                        faker.name().fullName(),
+                        faker.name().lastName()+ "-" + UUID.randomUUID() + "@foobar.com",
+                        20
+                )), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        client.get()
+                .uri(CUSTOMER_URI + "?limit=1")
+                .accept(MediaType.APPLICATION_JSON)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus()
+                .isOk();
+    }
+
+    @Test
+    void secondLevelCacheRequestsArePublished() {
+        // hit and miss counts of the customer region
+        client.get()
+                .uri("/actuator/metrics/hibernate.second.level.cache.requests?tag=region:customer")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.availableTags[?(@.tag == 'result')].values[*]")
+                .value(values -> assertThat((List<Object>) values).contains("hit", "miss"));
+    }
+
+    @Test
+    void canFollowCustomerChanges() {
+        Faker faker = new Faker();
+        String email = faker.name().lastName()+ "-" + UUID.randomUUID() + "@foobar.com";
+
+        final String CUSTOMER_URI = "/api/v1/customers";
+
+        // start from the newest change, a consumer would read its snapshot now
+        CustomerChangePage latest = client.get()
+                .uri(CUSTOMER_URI + "/changes/latest")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(CustomerChangePage.class)
+                .returnResult()
+                .getResponseBody();
+        assert latest != null;
+
+        // a long poll parked before the write is answered by it
+        CompletableFuture<CustomerChangePage> poll = CompletableFuture.supplyAsync(() -> client.get()
+                .uri(CUSTOMER_URI + "/changes?after={after}&wait=3", latest.nextCursor())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(CustomerChangePage.class)
+                .returnResult()
+                .getResponseBody());
+
+        client.post()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerRegistrationRequest(faker.name().fullName(), email, 20)), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        CustomerChangePage page = poll.join();
+        assertThat(page.changes())
+                .anySatisfy(change -> {
+                    assertThat(change.operation()).isEqualTo(CustomerChange.Operation.INSERT);
+                    assertThat(change.email()).isEqualTo(email);
+                });
+        assertThat(page.nextCursor()).isNotEqualTo(latest.nextCursor());
+
+        // nothing newer yet, the same cursor comes back
+        client.get()
+                .uri(CUSTOMER_URI + "/changes?after={after}&wait=0", page.nextCursor())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.changes").isEmpty()
+                .jsonPath("$.nextCursor").isEqualTo(page.nextCursor());
+
+        // a cursor the feed never handed out has no position to continue from
+        client.get()
+                .uri(CUSTOMER_URI + "/changes?after={after}&wait=0", Long.MAX_VALUE - 1)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.GONE);
+    }
 }
@@ -0,0 +1,87 @@
+package com.amigoscode.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SamplingTurboFilterTest {
+
+    private LoggerContext loggerContext;
+    private ListAppender<ILoggingEvent> appender;
+
+    @BeforeEach
+    void setUp() {
+        loggerContext = new LoggerContext();
+
+        SamplingTurboFilter filter = new SamplingTurboFilter();
+        filter.setContext(loggerContext);
+        filter.setLoggerName("org.hibernate.SQL");
+        filter.setSampleRate(5);
+        filter.start();
+        loggerContext.addTurboFilter(filter);
+
+        appender = new ListAppender<>();
+        appender.setContext(loggerContext);
+        appender.start();
+        Logger root = loggerContext.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.DEBUG);
+        root.addAppender(appender);
+    }
+
+    @Test
+    void letsOneInSampleRateEventsThrough() {
+        // Given
+        Logger sql = loggerContext.getLogger("org.hibernate.SQL");
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            if (sql.isDebugEnabled()) {
+                sql.debug("select {}", i);
+            }
+        }
+
+        // Then
+        assertThat(appender.list)
+                .extracting(ILoggingEvent::getFormattedMessage)
+                .containsExactly("select 0", "select 5");
+    }
+
+    @Test
+    void leavesOtherLoggersAndWarningsAlone() {
+        // Given
+        Logger sql = loggerContext.getLogger("org.hibernate.SQL");
+        Logger other = loggerContext.getLogger("com.amigoscode");
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            other.debug("debug {}", i);
+            sql.warn("warn {}", i);
+        }
+
+        // Then
+        assertThat(appender.list).hasSize(6);
+    }
+
+    @Test
+    void doesNotCountEventsBelowTheLoggerLevel() {
+        // Given
+        Logger sql = loggerContext.getLogger("org.hibernate.SQL");
+        sql.setLevel(Level.INFO);
+
+        // When
+        sql.debug("select 0");
+        sql.setLevel(Level.DEBUG);
+        sql.debug("select 1");
+
+        // Then
+        assertThat(appender.list)
+                .extracting(ILoggingEvent::getFormattedMessage)
+                .containsExactly("select 1");
+    }
+}